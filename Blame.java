@@ -0,0 +1,190 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/** Finds the Commit that last changed each line of a file, following the
+ *  first parent of each Commit. The history is walked back only as far as
+ *  the file goes, or as a Commit whose result for the file is cached, and
+ *  then forward, diffing the file only where its Blob changed: kept lines
+ *  keep their Commits, and new lines get the Commit that added them. The
+ *  result for the Commit blamed is cached in .gitlet/blame, so blaming the
+ *  file again after new Commits only goes through the new ones.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Blame {
+
+    /** The folder that results are cached in. */
+    static final File BLAME_FOLDER = Utils.join(Repository.GITLET_DIR, "blame");
+    /** Number of characters of a Commit name that are printed. */
+    static final int SHORT_ID = 8;
+
+    /** The history of the repository. */
+    private History history;
+    /** The journal told of the Blobs that a partial clone fetches. */
+    private Journal journal;
+    /** The lines of the file in the last Blob attributed. */
+    private String[] lines;
+
+    /** Creates a Blame of the Commits of HISTORY, which tells JOURNAL of
+     *  the Blobs it fetches. */
+    public Blame(History history, Journal journal) {
+        this.history = history;
+        this.journal = journal;
+    }
+
+    /** Returns, for each line of FILENAME in the Commit HEAD, the name of
+     *  the Commit that last changed it, or null if HEAD has no FILENAME.
+     *  The Blobs of the file that a partial clone lacks are fetched in one
+     *  batch before any is read. */
+    public String[] attribute(String head, String filename) {
+        ArrayDeque<Commit> newer = new ArrayDeque<>();
+        String[] owners = null;
+        String blob = null;
+        Commit c = history.read(head);
+        while (c.getFiles().containsKey(filename)) {
+            String id = c.getFiles().get(filename);
+            String[] cached = readCache(c.getName(), filename, id);
+            if (cached != null) {
+                owners = cached;
+                blob = id;
+                break;
+            }
+            newer.push(c);
+            List<String> parents = history.parents(c);
+            if (parents.isEmpty()) {
+                break;
+            }
+            c = history.read(parents.get(0));
+        }
+        Trace.cache("blame results", owners != null);
+        if (owners == null && newer.isEmpty()) {
+            return null;
+        }
+        ArrayList<String> blobs = new ArrayList<>();
+        blobs.add(blob);
+        for (Commit next : newer) {
+            blobs.add(next.getFiles().get(filename));
+        }
+        Remote.fetchAbsent(blobs, journal);
+        lines = blob == null ? null : Diff.splitLines(Blob.readBlob(blob).getFile());
+        boolean walked = !newer.isEmpty();
+        while (!newer.isEmpty()) {
+            Commit next = newer.pop();
+            String id = next.getFiles().get(filename);
+            if (id.equals(blob)) {
+                continue;
+            }
+            String[] nextLines = Diff.splitLines(Blob.readBlob(id).getFile());
+            String[] nextOwners = new String[nextLines.length];
+            int[] origins = lines == null ? null : new Diff(false, journal).matchLines(lines, nextLines);
+            for (int i = 0; i < nextLines.length; i++) {
+                boolean kept = origins != null && origins[i] >= 0;
+                nextOwners[i] = kept ? owners[origins[i]] : next.getName();
+            }
+            owners = nextOwners;
+            lines = nextLines;
+            blob = id;
+        }
+        if (walked) {
+            writeCache(head, filename, blob, owners);
+        }
+        return owners;
+    }
+
+    /** Prints each line of FILENAME in the Commit HEAD with the Commit that
+     *  last changed it. Used for git blame. */
+    public void print(String head, String filename) {
+        String[] owners = attribute(head, filename);
+        if (owners == null) {
+            System.out.println("File does not exist in that commit.");
+            System.exit(0);
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z");
+        HashMap<String, String> dates = new HashMap<>();
+        String width = "%" + String.valueOf(owners.length).length() + "d";
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < owners.length; i++) {
+            String date = dates.computeIfAbsent(owners[i],
+                    id -> format.format(history.read(id).getTimestamp()));
+            out.append(owners[i], 0, SHORT_ID).append(" (").append(date).append(' ')
+                    .append(String.format(width, i + 1)).append(") ").append(lines[i]).append('\n');
+        }
+        System.out.print(out);
+    }
+
+    /** Returns the owners cached for FILENAME in the Commit COMMIT, if they
+     *  were found for the Blob BLOB, or null. */
+    private String[] readCache(String commit, String filename, String blob) {
+        File file = cacheFile(commit, filename);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Utils.readContents(file)))) {
+            if (!Protocol.readId(in).equals(blob)) {
+                return null;
+            }
+            String[] commits = Protocol.readIds(in).toArray(new String[0]);
+            String[] owners = new String[in.readInt()];
+            for (int i = 0; i < owners.length; i++) {
+                owners[i] = commits[in.readInt()];
+            }
+            return owners;
+        } catch (IOException | RuntimeException excp) {
+            return null;
+        }
+    }
+
+    /** Caches OWNERS as the result for FILENAME, whose Blob is BLOB, in the
+     *  Commit COMMIT. */
+    private void writeCache(String commit, String filename, String blob, String[] owners) {
+        ArrayList<String> commits = new ArrayList<>();
+        HashMap<String, Integer> indices = new HashMap<>();
+        for (String owner : owners) {
+            if (indices.putIfAbsent(owner, commits.size()) == null) {
+                commits.add(owner);
+            }
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            Protocol.writeId(out, blob);
+            Protocol.writeIds(out, commits);
+            out.writeInt(owners.length);
+            for (String owner : owners) {
+                out.writeInt(indices.get(owner));
+            }
+            BLAME_FOLDER.mkdir();
+            Journal.replace(cacheFile(commit, filename), bytes.toByteArray(), false);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Returns the file that the result for FILENAME in COMMIT is cached in. */
+    private static File cacheFile(String commit, String filename) {
+        return Utils.join(BLAME_FOLDER, Utils.sha1(commit, "\0", filename) + ".txt");
+    }
+
+    /** Deletes every cached result. Used for git gc, as results name Commits
+     *  that may be deleted. */
+    public static void clearCache() {
+        List<String> cached = Utils.plainFilenamesIn(BLAME_FOLDER);
+        if (cached != null) {
+            for (String name : cached) {
+                Utils.join(BLAME_FOLDER, name).delete();
+            }
+        }
+    }
+}
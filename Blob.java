@@ -1,43 +1,477 @@
 package gitlet;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.Serializable;
-import java.util.UUID;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import jdk.jfr.Event;
 
-/** Represents a gitlet blob object.
+/** Represents a gitlet blob object. A Blob is saved as a 16 byte header
+ *  (MAGIC, the kind of Blob and the length of the file) followed by the
+ *  file itself, or by the names of its chunks if it was split, so that the
+ *  file can be copied or mapped straight out of the object without going
+ *  through the heap. Blobs saved by older versions as serialized objects
+ *  are still read.
  *  @author Kartik Punia
  *  @author Akshay Talkad
  */
 public class Blob implements Serializable {
 
+    /** Kept fixed so that Blobs saved by older versions of gitlet still load. */
+    private static final long serialVersionUID = -227379701362243668L;
+
     /** Folder that the Blobs are in. */
     static final File BLOB_FOLDER = Utils.join(Repository.GITLET_DIR, "blobs");
-    /** The file that the Blob points to. */
+    /** Folder that the chunks of large files are in. */
+    static final File CHUNK_FOLDER = Utils.join(Repository.GITLET_DIR, "chunks");
+    /** Folder of read-only, headerless copies of Blobs that working files
+     *  are linked to by checkout.mode=link. */
+    static final File LINK_FOLDER = Utils.join(Repository.GITLET_DIR, "links");
+    /** Default size past which files are split into chunks. */
+    static final long CHUNK_THRESHOLD = 4L << 20;
+    /** First bytes of a saved Blob. */
+    static final int MAGIC = 0x474c424f;
+    /** Size of the header in front of a saved Blob's contents. */
+    static final int HEADER_SIZE = 16;
+    /** Kind of a Blob that holds the whole file. */
+    static final int RAW = 0;
+    /** Kind of a Blob that holds the names of the file's chunks. */
+    static final int CHUNKED = 1;
+    /** First bytes of a Blob saved by Java serialization. */
+    static final short SERIALIZED = (short) 0xaced;
+    /** Largest file that can be held in one buffer. */
+    static final long MAX_BUFFER = Integer.MAX_VALUE - 8;
+    /** Size of the blocks that files are compared in when they are streamed. */
+    static final int COMPARE_BLOCK = 1 << 16;
+    /** The file that the Blob points to, or null if it is split into chunks
+     *  or has not been read from SOURCE. */
     private byte[] file;
     /** The Sha 1 name associated with this Blob. */
     private String sha1Name;
+    /** The names of the chunks of the file, in order, or null if the whole
+     *  file is in the Blob. */
+    private ArrayList<String> chunks;
+    /** The saved Blob whose contents follow the header, or null. */
+    private transient File source;
+    /** The length of the file when it is not held in FILE. */
+    private transient long length;
 
-    public Blob(String fileName) {
-        file = Utils.readContents(Utils.join(Repository.CWD, fileName));
+    /** Creates the Blob of the file FILENAME in the CWD. Files larger than
+     *  core.chunkThreshold are split into content-defined chunks, and each
+     *  chunk that is not stored yet is saved through JOURNAL right away. The
+     *  Blob itself is only saved by saveBlob. */
+    public Blob(String fileName, Journal journal) {
+        File source = Utils.join(Repository.CWD, fileName);
+        long threshold = new Config().getLong("core.chunkThreshold", CHUNK_THRESHOLD);
+        if (source.length() <= threshold) {
+            file = Utils.readContents(source);
+            sha1Name = name(file);
+            return;
+        }
+        chunks = chunk(source, journal);
+        length = source.length();
+        sha1Name = Utils.sha1("chunked", String.join(",", chunks));
+    }
 
-        sha1Name = Utils.sha1(UUID.randomUUID().toString());
+    /** Returns the names of the content-defined chunks of SOURCE, saving
+     *  each chunk that is not stored yet through JOURNAL unless it is null. */
+    private static ArrayList<String> chunk(File source, Journal journal) {
+        ArrayList<String> names = new ArrayList<>();
+        try (InputStream in = new FileInputStream(source)) {
+            Chunker chunker = new Chunker(in);
+            for (byte[] chunk = chunker.next(); chunk != null; chunk = chunker.next()) {
+                String id = Utils.sha1("chunk", chunk);
+                if (journal != null && !journal.contains(CHUNK_FOLDER, id)) {
+                    CHUNK_FOLDER.mkdir();
+                    journal.writeContents(Utils.join(CHUNK_FOLDER, id + ".txt"), chunk);
+                }
+                names.add(id);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        return names;
+    }
+
+    /** Creates the Blob SHA1NAME saved in SOURCE, whose file is LENGTH bytes. */
+    private Blob(String sha1Name, File source, long length) {
+        this.sha1Name = sha1Name;
+        this.source = source;
+        this.length = length;
+    }
 
-        saveBlob();
+    /** Returns the Sha 1 name of the Blob holding CONTENTS. */
+    public static String name(byte[] contents) {
+        return Utils.sha1("blob", contents);
     }
 
-    /** Saves Blob to blobs folder in .gitlet */
-    public void saveBlob() {
-        Utils.writeObject(Utils.join(BLOB_FOLDER, sha1Name + ".txt"), this);
+    /** Saves Blob to blobs folder in .gitlet through JOURNAL. Blobs are named
+     *  by their contents, so nothing is written if the Blob already exists. */
+    public void saveBlob(Journal journal) {
+        if (journal.contains(BLOB_FOLDER, sha1Name)) {
+            return;
+        }
+        byte[] contents = chunks == null ? file
+                : String.join("\n", chunks).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer saved = ByteBuffer.allocate(HEADER_SIZE + contents.length);
+        saved.putInt(MAGIC).putInt(chunks == null ? RAW : CHUNKED).putLong(length());
+        saved.put(contents);
+        journal.writeContents(Utils.join(BLOB_FOLDER, sha1Name + ".txt"), saved.array());
     }
 
-    /** Reads Commit into an object given the filename. */
+    /** Reads the Blob named ID, which must be stored. Only the header is
+     *  read; the file itself is read when it is asked for. */
     public static Blob readBlob(String id) {
-        return Utils.readObject(Utils.join(BLOB_FOLDER, id + ".txt"), Blob.class);
+        return readBlob(BLOB_FOLDER, id);
+    }
+
+    /** Reads the Blob named ID like readBlob(ID), first fetching it from the
+     *  promisor remote of a partial clone if this repository lacks it, and
+     *  telling JOURNAL of the objects fetched. Callers that read many Blobs
+     *  fetch them in one batch with Remote.fetchAbsent instead. */
+    public static Blob readBlob(String id, Journal journal) {
+        Remote.fetchAbsent(List.of(id), journal);
+        return readBlob(BLOB_FOLDER, id);
+    }
+
+    /** Reads the Blob named ID from FOLDER, the blobs folder of this or
+     *  another repository. The chunks of a split Blob are always looked up
+     *  in this repository. */
+    public static Blob readBlob(File folder, String id) {
+        File source = Utils.join(folder, id + ".txt");
+        long start = Trace.start();
+        Event event = FlightEvents.begin(FlightEvents.OBJECT_READ);
+        try (FileChannel in = FileChannel.open(source.toPath())) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                continue;
+            }
+            header.flip();
+            if (header.remaining() >= 2 && header.getShort(0) == SERIALIZED) {
+                Blob b = Utils.readObject(source, Blob.class);
+                for (String chunk : b.chunks == null ? List.<String>of() : b.chunks) {
+                    b.length += Utils.join(CHUNK_FOLDER, chunk + ".txt").length();
+                }
+                return b;
+            }
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IllegalArgumentException("not a blob: " + id);
+            }
+            int kind = header.getInt();
+            Blob b = new Blob(id, source, header.getLong());
+            if (kind == CHUNKED) {
+                ByteBuffer names = ByteBuffer.allocate((int) (in.size() - HEADER_SIZE));
+                while (names.hasRemaining() && in.read(names) >= 0) {
+                    continue;
+                }
+                String list = new String(names.array(), StandardCharsets.UTF_8);
+                b.chunks = new ArrayList<>(Arrays.asList(list.split("\n")));
+                b.source = null;
+            }
+            Trace.read("blobs", in.position());
+            if (event != null) {
+                FlightEvents.commit(event, folder.getName(), id, b.length());
+            }
+            return b;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        } finally {
+            Trace.time("Blob.readBlob", start);
+        }
+    }
+
+    /** Returns true if SAVED, a Blob received from another repository,
+     *  holds what its name ID says: the name is worked out again from the
+     *  file in it, or from the names of its chunks if it was split. A Blob
+     *  saved by an older version is named differently, and is only checked
+     *  to carry the name ID. */
+    static boolean holds(File saved, String id) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(saved), COMPARE_BLOCK))) {
+            int magic = in.readInt();
+            if ((short) (magic >>> 16) == SERIALIZED) {
+                return id.equals(Utils.readObject(saved, Blob.class).sha1Name);
+            }
+            int kind = in.readInt();
+            long length = in.readLong();
+            if (magic != MAGIC) {
+                return false;
+            } else if (kind == RAW) {
+                return length == saved.length() - HEADER_SIZE
+                        && Utils.sha1("blob", in).equals(id);
+            } else if (kind == CHUNKED) {
+                String names = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                return Utils.sha1("chunked", names.replace('\n', ',')).equals(id);
+            }
+            return false;
+        } catch (EOFException excp) {
+            return false;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Returns true if SAVED, a chunk received from another repository,
+     *  holds the bytes that its name ID was made from. */
+    static boolean holdsChunk(File saved, String id) {
+        try (InputStream in = new FileInputStream(saved)) {
+            return Utils.sha1("chunk", in).equals(id);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Returns true if the Blobs named A and B hold the same file. Blobs are
+     *  compared by name, then by length, and only then byte by byte. */
+    public static boolean sameContents(String a, String b) {
+        return sameContents(a, b, null);
+    }
+
+    /** Returns true if the stored Blobs named A and B hold the same file,
+     *  holding both files against BUDGET, if not null, while they are
+     *  compared. Split
+     *  Blobs are compared by their chunk names, as the same file is always
+     *  split the same way, and a split Blob is compared with one that is not
+     *  block by block, so that a split file is never held whole. */
+    public static boolean sameContents(String a, String b, MemoryBudget budget) {
+        Trace.cache("blob names", a.equals(b));
+        if (a.equals(b)) {
+            return true;
+        }
+        Blob x = readBlob(a);
+        Blob y = readBlob(b);
+        if (x.length() != y.length()) {
+            return false;
+        }
+        if (x.chunks != null && y.chunks != null) {
+            return x.chunks.equals(y.chunks);
+        }
+        if (x.chunks != null || y.chunks != null) {
+            long held = budget == null ? 0 : budget.acquire(2 * COMPARE_BLOCK);
+            try {
+                return sameStreams(x, y);
+            } finally {
+                if (budget != null) {
+                    budget.release(held);
+                }
+            }
+        }
+        long held = budget == null ? 0 : budget.acquire(2 * x.length());
+        try {
+            return x.getBuffer().equals(y.getBuffer());
+        } finally {
+            if (budget != null) {
+                budget.release(held);
+            }
+        }
+    }
+
+    /** Returns true if the files saved in X and Y, which have the same
+     *  length, hold the same bytes, reading them a block at a time. */
+    private static boolean sameStreams(Blob x, Blob y) {
+        byte[] xBlock = new byte[COMPARE_BLOCK];
+        byte[] yBlock = new byte[COMPARE_BLOCK];
+        try (InputStream xIn = x.open(); InputStream yIn = y.open()) {
+            for (long left = x.length(); left > 0; left -= xBlock.length) {
+                int size = (int) Math.min(left, xBlock.length);
+                if (xIn.readNBytes(xBlock, 0, size) != size
+                        || yIn.readNBytes(yBlock, 0, size) != size
+                        || !Arrays.equals(xBlock, 0, size, yBlock, 0, size)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Returns true if FILE holds the file saved in the Blob. The lengths
+     *  are compared first, and then the name of the Blob with the name that
+     *  the contents of FILE would get, or its chunk names with those of FILE,
+     *  so that the saved file is never read. A Blob saved by an older version
+     *  is named differently and is compared byte by byte. */
+    public boolean sameAs(File other) {
+        if (!other.isFile() || other.length() != length()) {
+            return false;
+        }
+        if (chunks != null) {
+            return chunks.equals(chunk(other, null));
+        }
+        byte[] contents = Utils.readContents(other);
+        if (source != null) {
+            return name(contents).equals(sha1Name);
+        }
+        return Arrays.equals(file, contents);
     }
 
-    /** Returns the byte[] of the file saved in the Blob. */
+    /** Returns the byte[] of the file saved in the Blob, putting it back
+     *  together from its chunks if it was split. Fails for files larger than
+     *  MAX_BUFFER, which must be read through open(). */
     public byte[] getFile() {
-        return file;
+        if (file != null) {
+            return file;
+        }
+        ByteBuffer contents = getBuffer();
+        byte[] result = new byte[contents.remaining()];
+        contents.get(result);
+        return result;
+    }
+
+    /** Returns the file saved in the Blob as a read-only buffer, which is
+     *  mapped straight from the saved Blob when it holds the whole file.
+     *  Fails for files larger than MAX_BUFFER, which must be read through
+     *  open(). */
+    public ByteBuffer getBuffer() {
+        if (file != null) {
+            return ByteBuffer.wrap(file).asReadOnlyBuffer();
+        }
+        if (length > MAX_BUFFER) {
+            throw Utils.error("File too large to load: %s", sha1Name);
+        }
+        Trace.read("blob contents", length);
+        if (source != null) {
+            try (FileChannel in = FileChannel.open(source.toPath())) {
+                return in.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, length);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp);
+            }
+        }
+        ByteBuffer contents = ByteBuffer.allocate((int) length);
+        for (String chunk : chunks) {
+            contents.put(Utils.readContents(Utils.join(CHUNK_FOLDER, chunk + ".txt")));
+        }
+        return contents.flip();
+    }
+
+    /** Returns a stream of the file saved in the Blob, which reads it
+     *  straight from the saved Blob, or from each of its chunks in turn. */
+    public InputStream open() {
+        if (file != null) {
+            return new ByteArrayInputStream(file);
+        }
+        Trace.read("blob contents", length);
+        try {
+            if (source != null) {
+                InputStream in = new FileInputStream(source);
+                in.skipNBytes(HEADER_SIZE);
+                return in;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        Iterator<String> names = chunks.iterator();
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return names.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return new FileInputStream(Utils.join(CHUNK_FOLDER, names.next() + ".txt"));
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp);
+                }
+            }
+        });
+    }
+
+    /** Writes the file saved in the Blob to TARGET. The bytes are transferred
+     *  straight from the saved Blob, or from each of its chunks, without being
+     *  copied through the heap. An existing TARGET is removed first, so that
+     *  a file linked into LINK_FOLDER is replaced rather than written through. */
+    public void writeTo(File target) {
+        Trace.write("working files", length());
+        target.delete();
+        if (file != null) {
+            Utils.writeContents(target, file);
+            return;
+        }
+        try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (source != null) {
+                transfer(source, HEADER_SIZE, out);
+                return;
+            }
+            for (String chunk : chunks) {
+                transfer(Utils.join(CHUNK_FOLDER, chunk + ".txt"), 0, out);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Makes TARGET a hard link to a shared read-only copy of the file saved
+     *  in the Blob, which is made once in LINK_FOLDER, so that checking out
+     *  the same file again takes no space and no copying. The shared copy is
+     *  made with the modification time of the saved Blob, and is trusted
+     *  without being read as long as its length and modification time still
+     *  match, as editing it in place through an earlier link changes the
+     *  latter. Falls back to copying the shared copy, which the file system
+     *  may clone, where TARGET cannot be linked to it. */
+    public void linkTo(File target) {
+        File shared = Utils.join(LINK_FOLDER, sha1Name + ".txt");
+        long stamp = Utils.join(BLOB_FOLDER, sha1Name + ".txt").lastModified();
+        try {
+            if (stamp == 0 || !shared.isFile() || shared.length() != length()
+                    || shared.lastModified() != stamp) {
+                LINK_FOLDER.mkdir();
+                File temp = Journal.tempFile(shared);
+                writeTo(temp);
+                temp.setLastModified(stamp);
+                temp.setReadOnly();
+                Files.move(temp.toPath(), shared.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            target.delete();
+            try {
+                Files.createLink(target.toPath(), shared.toPath());
+            } catch (IOException | UnsupportedOperationException excp) {
+                Files.copy(shared.toPath(), target.toPath());
+                target.setWritable(true);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Appends the contents of FROM, starting at POSITION, to OUT. */
+    private static void transfer(File from, long position, FileChannel out) throws IOException {
+        try (FileChannel in = FileChannel.open(from.toPath())) {
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    /** Returns the length of the file saved in the Blob. */
+    public long length() {
+        return file != null ? file.length : length;
+    }
+
+    /** Returns the names of the chunks of the file, or null if it is not split. */
+    public List<String> getChunks() {
+        return chunks;
     }
 
     /** Returns the sha1Name of the Blob. */
@@ -0,0 +1,140 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/** A Bloom filter over Sha 1 object names. It answers "might this object
+ *  exist?" without touching the disk: a false answer is always right, while
+ *  a true answer is wrong with about the false-positive rate the filter was
+ *  sized for. The bit positions come from the object name itself, which is
+ *  already a uniformly distributed hash.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class BloomFilter {
+
+    /** First bytes of a saved filter. */
+    static final int MAGIC = 0x474c4246;
+
+    /** The bits of the filter. */
+    private long[] bits;
+    /** The number of bits in the filter. */
+    private long size;
+    /** The number of bits set for each name. */
+    private int hashes;
+    /** The number of names the filter was sized for. */
+    private long capacity;
+    /** The number of names added so far. */
+    private long count;
+
+    /** Creates an empty filter for CAPACITY names with a false-positive rate
+     *  of about FPRATE once full. */
+    public BloomFilter(long capacity, double fpRate) {
+        this.capacity = Math.max(capacity, 1);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-this.capacity * Math.log(fpRate) / (ln2 * ln2));
+        size = Math.max(64, (m + 63) / 64 * 64);
+        hashes = (int) Math.max(1, Math.min(16, Math.round((double) size / this.capacity * ln2)));
+        bits = new long[(int) (size / 64)];
+    }
+
+    /** Adds the object name ID. */
+    public void add(String id) {
+        long h1 = half(id, 0);
+        long h2 = half(id, 16) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, size);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        count += 1;
+    }
+
+    /** Returns false if ID was certainly never added. */
+    public boolean mightContain(String id) {
+        long h1 = half(id, 0);
+        long h2 = half(id, 16) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, size);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns true if more names were added than the filter was sized for. */
+    public boolean full() {
+        return count > capacity;
+    }
+
+    /** Returns the number of names added. */
+    public long count() {
+        return count;
+    }
+
+    /** Returns the 64 bits of hexadecimal ID starting at character START,
+     *  or a hash of ID if it is not a Sha 1 name. */
+    private static long half(String id, int start) {
+        if (id.length() < start + 16) {
+            long h = id.hashCode() * 0x9e3779b97f4a7c15L + start;
+            return h ^ (h >>> 29);
+        }
+        return Long.parseUnsignedLong(id.substring(start, start + 16), 16);
+    }
+
+    /** Returns the filter as bytes for saving. */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bits.length * 8 + 32);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            out.writeInt(hashes);
+            out.writeLong(capacity);
+            out.writeLong(count);
+            out.writeLong(size);
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Returns the filter saved in FILE, or null if FILE is missing or is
+     *  not a saved filter. */
+    public static BloomFilter read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            return read(in);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Returns the filter saved at the start of IN, or null if IN does not
+     *  start with a saved filter. */
+    public static BloomFilter read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            return null;
+        }
+        BloomFilter filter = new BloomFilter(1, 0.5);
+        filter.hashes = in.readInt();
+        filter.capacity = in.readLong();
+        filter.count = in.readLong();
+        filter.size = in.readLong();
+        filter.bits = new long[(int) (filter.size / 64)];
+        for (int i = 0; i < filter.bits.length; i++) {
+            filter.bits[i] = in.readLong();
+        }
+        return filter;
+    }
+}
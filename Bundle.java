@@ -0,0 +1,276 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/** Represents a bundle: one file holding branches together with every
+ *  chunk, Blob and Commit they need, for carrying a repository where no
+ *  remote can reach. The file starts with the branches and the Commits the
+ *  receiver must already have, followed by the objects, each compressed on
+ *  its own, in the order they can be stored in (chunks, Blobs, Commits).
+ *  An index of the objects and a SHA-1 of the whole file come last, so a
+ *  bundle is written in one pass and checked in one pass before anything
+ *  is stored.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Bundle {
+
+    /** First bytes of every bundle ("GBDL"). */
+    static final int MAGIC = 0x4742444c;
+    /** Version of the bundle format. */
+    static final byte VERSION = 1;
+    /** Number of objects compressed in parallel before they are written. */
+    static final int BATCH = 64;
+    /** Size of the buffers used to read and write bundles. */
+    static final int BUFFER_SIZE = 1 << 16;
+    /** Size of the trailing SHA-1 of a bundle. */
+    static final int CHECKSUM_SIZE = 20;
+
+    /** The bundle file. */
+    private File file;
+
+    /** Creates a bundle kept in FILE. */
+    public Bundle(File file) {
+        this.file = file;
+    }
+
+    /** Writes the branches REFS (key = branch name, value = head Commit) to
+     *  the bundle with the history behind them, leaving out everything
+     *  reachable from the Commits EXCLUDES, which the receiver already has.
+     *  Blobs a partial clone left on its promisor are fetched through
+     *  JOURNAL first. Returns the number of objects written. */
+    public int create(Map<String, String> refs, List<String> excludes, Journal journal) {
+        List<String> commits = Remote.missingCommits(Repository.GITLET_DIR,
+                new ArrayList<>(refs.values()), excludes, 0);
+        if (commits.isEmpty()) {
+            System.out.println("Refusing to create an empty bundle.");
+            System.exit(0);
+        }
+        HashSet<String> included = new HashSet<>(commits);
+        ArrayList<String> prerequisites = new ArrayList<>();
+        for (String id : commits) {
+            Commit c = Commit.readCommit(id);
+            for (String parent : Arrays.asList(c.getPrevCommit(), c.getPrevCommit2())) {
+                if (parent != null && !included.contains(parent) && !prerequisites.contains(parent)) {
+                    prerequisites.add(parent);
+                }
+            }
+        }
+        List<String> known = Remote.blobsOf(Repository.GITLET_DIR, prerequisites);
+        List<String> blobs = without(Remote.blobsOf(Repository.GITLET_DIR, commits), known);
+        Remote.fetchAbsent(blobs, journal);
+        List<String> chunks = without(Remote.chunksOf(Repository.GITLET_DIR, blobs),
+                Remote.chunksOf(Repository.GITLET_DIR, Remote.existing(Repository.GITLET_DIR,
+                        Blob.BLOB_FOLDER, known)));
+
+        ArrayList<File> folders = new ArrayList<>();
+        ArrayList<String> ids = new ArrayList<>();
+        for (List<String> kind : List.of(chunks, blobs, commits)) {
+            File folder = kind == chunks ? Blob.CHUNK_FOLDER
+                    : kind == blobs ? Blob.BLOB_FOLDER : Commit.COMMIT_FOLDER;
+            for (String id : kind) {
+                folders.add(folder);
+                ids.add(id);
+            }
+        }
+        try (DigestOutputStream digest = new DigestOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), BUFFER_SIZE), sha1())) {
+            DataOutputStream out = new DataOutputStream(digest);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(refs.size());
+            for (Map.Entry<String, String> ref : refs.entrySet()) {
+                out.writeUTF(ref.getKey());
+                Protocol.writeId(out, ref.getValue());
+            }
+            Protocol.writeIds(out, prerequisites);
+            long position = out.size();
+            long[] offsets = new long[ids.size()];
+            for (int start = 0; start < ids.size(); start += BATCH) {
+                int batch = start;
+                List<byte[]> entries = CommandThread.parallel(() -> IntStream
+                        .range(batch, Math.min(batch + BATCH, ids.size()))
+                        .parallel()
+                        .mapToObj(i -> entry(folders.get(i), ids.get(i)))
+                        .collect(Collectors.toList()));
+                for (int i = 0; i < entries.size(); i++) {
+                    offsets[start + i] = position;
+                    out.write(entries.get(i));
+                    position += entries.get(i).length;
+                }
+            }
+            long indexOffset = position;
+            out.writeInt(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                out.writeUTF(folders.get(i).getName());
+                Protocol.writeId(out, ids.get(i));
+                out.writeLong(offsets[i]);
+            }
+            out.writeLong(indexOffset);
+            out.flush();
+            out.write(digest.getMessageDigest().digest());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        return ids.size();
+    }
+
+    /** Checks the bundle and stores the objects of it that JOURNAL's
+     *  repository lacks. Objects are read in the order they were written,
+     *  and stored as one ObjectBatch. Returns the branches of the bundle. */
+    public Map<String, String> unbundle(Journal journal) {
+        verify();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE))) {
+            in.readInt();
+            in.readByte();
+            LinkedHashMap<String, String> refs = new LinkedHashMap<>();
+            for (int count = in.readInt(); count > 0; count--) {
+                refs.put(in.readUTF(), Protocol.readId(in));
+            }
+            List<String> missing = Protocol.readIds(in).stream()
+                    .filter(id -> !journal.contains(Commit.COMMIT_FOLDER, id))
+                    .collect(Collectors.toList());
+            if (!missing.isEmpty()) {
+                System.out.println("Repository lacks these prerequisite commits:");
+                for (String id : missing) {
+                    System.out.println(id);
+                }
+                System.exit(0);
+            }
+            int count = index();
+            ObjectBatch received = new ObjectBatch(Repository.GITLET_DIR);
+            try {
+                for (int i = 0; i < count; i++) {
+                    File folder = Protocol.folder(in.readUTF());
+                    String id = Protocol.readId(in);
+                    int length = in.readInt();
+                    if (journal.contains(folder, id)) {
+                        in.skipNBytes(length);
+                        continue;
+                    }
+                    byte[] compressed = in.readNBytes(length);
+                    try (InputStream inflater = new InflaterInputStream(
+                            new ByteArrayInputStream(compressed))) {
+                        received.add(folder, id, inflater.readAllBytes());
+                    }
+                }
+                journal.addObjects(received.install());
+            } finally {
+                received.discard();
+            }
+            return refs;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Exits unless the bundle is whole: it must start with MAGIC and end
+     *  with the SHA-1 of everything before it. */
+    private void verify() {
+        long length = file.length();
+        if (!file.isFile() || length < CHECKSUM_SIZE + Long.BYTES + 5) {
+            corrupt();
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file),
+                BUFFER_SIZE)) {
+            MessageDigest digest = sha1();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long left = length - CHECKSUM_SIZE;
+            while (left > 0) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+                if (n < 0) {
+                    corrupt();
+                }
+                digest.update(buffer, 0, n);
+                left -= n;
+            }
+            if (!MessageDigest.isEqual(digest.digest(), in.readNBytes(CHECKSUM_SIZE))) {
+                corrupt();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                corrupt();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Returns the number of objects in the bundle, read from its index. */
+    private int index() throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(file.length() - CHECKSUM_SIZE - Long.BYTES);
+            in.seek(in.readLong());
+            return in.readInt();
+        }
+    }
+
+    /** Returns the compressed entry of the object ID of FOLDER. */
+    private static byte[] entry(File folder, String id) {
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+                deflater.write(Files.readAllBytes(Utils.join(folder, id + ".txt").toPath()));
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream entry = new DataOutputStream(bytes);
+            entry.writeUTF(folder.getName());
+            Protocol.writeId(entry, id);
+            entry.writeInt(compressed.size());
+            compressed.writeTo(entry);
+            return bytes.toByteArray();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Returns IDS without the names in OTHERS. */
+    private static List<String> without(List<String> ids, List<String> others) {
+        HashSet<String> excluded = new HashSet<>(others);
+        return ids.stream().filter(id -> !excluded.contains(id)).collect(Collectors.toList());
+    }
+
+    /** Returns a new SHA-1 digest. */
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** Reports that the bundle is damaged and exits. */
+    private static void corrupt() {
+        System.out.println("Bundle is corrupt.");
+        System.exit(0);
+    }
+}
@@ -0,0 +1,137 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/** Splits a stream into content-defined chunks with the FastCDC algorithm.
+ *  A rolling "gear" hash is computed over the bytes, and a chunk ends where
+ *  the hash matches a mask, so the chunk boundaries depend only on nearby
+ *  contents: an edit in the middle of a large file changes the chunks around
+ *  it and leaves all the others as they were. A stricter mask is used before
+ *  the average size and a looser one after it, which keeps chunk sizes close
+ *  to the average.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Chunker {
+
+    /** Default smallest chunk, except for the last one. */
+    static final int MIN_SIZE = 16 << 10;
+    /** Default target average chunk size; must be a power of two. */
+    static final int AVG_SIZE = 64 << 10;
+    /** Default largest chunk. */
+    static final int MAX_SIZE = 256 << 10;
+
+    /** Smallest chunk this Chunker cuts, except for the last one. */
+    private int minSize;
+    /** Average chunk size this Chunker aims for. */
+    private int avgSize;
+    /** Largest chunk this Chunker cuts. */
+    private int maxSize;
+    /** Random value added to the hash for each possible byte. */
+    private long[] gear;
+    /** Mask used before a chunk reaches the average size. */
+    private long maskS;
+    /** Mask used after a chunk reaches the average size. */
+    private long maskL;
+    /** The stream being split. */
+    private InputStream in;
+    /** Bytes read from IN but not yet returned. */
+    private byte[] buffer;
+    /** Start of the unreturned bytes in BUFFER. */
+    private int start;
+    /** End of the unreturned bytes in BUFFER. */
+    private int end;
+    /** True once IN has been read to the end. */
+    private boolean eof;
+
+    /** Creates a Chunker that splits the contents of IN. */
+    public Chunker(InputStream in) {
+        this(in, MIN_SIZE, AVG_SIZE, MAX_SIZE);
+    }
+
+    /** Creates a Chunker that splits the contents of IN into chunks of
+     *  MINSIZE to MAXSIZE bytes, AVGSIZE on average. AVGSIZE must be a
+     *  power of two. */
+    public Chunker(InputStream in, int minSize, int avgSize, int maxSize) {
+        this.in = in;
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        gear = new long[256];
+        SplittableRandom random = new SplittableRandom(0x6765617248617368L);
+        for (int i = 0; i < gear.length; i++) {
+            gear[i] = random.nextLong();
+        }
+        int bits = Integer.numberOfTrailingZeros(avgSize);
+        maskS = -1L << (64 - (bits + 1));
+        maskL = -1L << (64 - (bits - 1));
+        buffer = new byte[2 * maxSize];
+    }
+
+    /** Returns the next chunk, or null once the stream is used up. */
+    public byte[] next() {
+        fill();
+        if (start == end) {
+            return null;
+        }
+        int length = cut(start, end - start);
+        byte[] chunk = Arrays.copyOfRange(buffer, start, start + length);
+        start += length;
+        return chunk;
+    }
+
+    /** Returns the length of the chunk that starts at POS, given that N bytes
+     *  are available there. */
+    private int cut(int pos, int n) {
+        if (n <= minSize) {
+            return n;
+        }
+        if (n > maxSize) {
+            n = maxSize;
+        }
+        int normal = Math.min(n, avgSize);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + gear[buffer[pos + i] & 0xff];
+            if ((hash & maskS) == 0) {
+                return i;
+            }
+        }
+        for (; i < n; i++) {
+            hash = (hash << 1) + gear[buffer[pos + i] & 0xff];
+            if ((hash & maskL) == 0) {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    /** Reads from IN until BUFFER holds at least maxSize unreturned bytes or
+     *  the stream ends. */
+    private void fill() {
+        if (end - start >= maxSize || eof) {
+            return;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        try {
+            while (end < buffer.length) {
+                int read = in.read(buffer, end, buffer.length - end);
+                if (read < 0) {
+                    eof = true;
+                    break;
+                }
+                end += read;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+}
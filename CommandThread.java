@@ -0,0 +1,126 @@
+package gitlet;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+
+/** A thread that gitlet commands run on when they are instrumented. It
+ *  carries the Trace of the command and the FlightEvents it emits, either
+ *  of which may be null, so that the static recording methods of both find
+ *  them without any global state. Parallel streams of an instrumented
+ *  command are run through parallel(), in a pool whose Workers carry the
+ *  same Trace and FlightEvents.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class CommandThread extends Thread {
+
+    /** The Trace of the command, or null. */
+    private final Trace trace;
+    /** The Flight Recorder events of the command, or null. */
+    private final FlightEvents events;
+
+    /** Creates the thread running BODY with TRACE and EVENTS. */
+    public CommandThread(Trace trace, FlightEvents events, Runnable body) {
+        super(body, "gitlet-command");
+        this.trace = trace;
+        this.events = events;
+    }
+
+    /** Returns the Trace of the command running on this thread, or null. */
+    static Trace currentTrace() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof CommandThread) {
+            return ((CommandThread) thread).trace;
+        }
+        return thread instanceof Worker ? ((Worker) thread).trace : null;
+    }
+
+    /** Returns the Flight Recorder events of the command running on this
+     *  thread, or null. */
+    static FlightEvents currentEvents() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof CommandThread) {
+            return ((CommandThread) thread).events;
+        }
+        return thread instanceof Worker ? ((Worker) thread).events : null;
+    }
+
+    /** Returns the result of WORK, which uses parallel streams. If the
+     *  command running on this thread is instrumented, WORK runs in a pool
+     *  of its own whose Workers carry the command's Trace and FlightEvents,
+     *  so that what the streams do is traced and recorded like the rest of
+     *  the command; otherwise the streams use the common pool. */
+    static <T> T parallel(Supplier<T> work) {
+        Trace trace = currentTrace();
+        FlightEvents events = currentEvents();
+        if (Thread.currentThread() instanceof Worker || trace == null && events == null) {
+            return work.get();
+        }
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                owner -> new Worker(owner, trace, events), null, false);
+        try {
+            return pool.submit(work::get).get();
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw (Error) excp.getCause();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw Utils.error("Interrupted while waiting for parallel work.");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Runs WORK, which uses parallel streams, like parallel(Supplier). */
+    static void parallel(Runnable work) {
+        parallel(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** Runs BODY on a CommandThread carrying TRACE and EVENTS and waits for
+     *  it, rethrowing whatever BODY threw. */
+    public static void run(Trace trace, FlightEvents events, Runnable body) {
+        Throwable[] failure = new Throwable[1];
+        CommandThread thread = new CommandThread(trace, events, () -> {
+            try {
+                body.run();
+            } catch (RuntimeException | Error excp) {
+                failure[0] = excp;
+            }
+        });
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure[0] instanceof RuntimeException) {
+            throw (RuntimeException) failure[0];
+        } else if (failure[0] != null) {
+            throw (Error) failure[0];
+        }
+    }
+
+    /** A thread of the pool of parallel(), which carries the Trace and
+     *  FlightEvents of the command that started the parallel work. */
+    static class Worker extends ForkJoinWorkerThread {
+
+        /** The Trace of the command, or null. */
+        private final Trace trace;
+        /** The Flight Recorder events of the command, or null. */
+        private final FlightEvents events;
+
+        /** Creates a Worker of POOL carrying TRACE and EVENTS. */
+        Worker(ForkJoinPool pool, Trace trace, FlightEvents events) {
+            super(pool);
+            this.trace = trace;
+            this.events = events;
+        }
+    }
+}
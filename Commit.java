@@ -6,6 +6,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.UUID;
+import jdk.jfr.Event;
 
 /** Represents a gitlet commit object.
  *  @author Kartik Punia
@@ -13,6 +14,9 @@ import java.util.UUID;
  */
 public class Commit implements Serializable {
 
+    /** Kept fixed so that Commits made by older versions of gitlet still load. */
+    private static final long serialVersionUID = 2118278887101916432L;
+
     /** Folder that the Commits are in. */
     static final File COMMIT_FOLDER = Utils.join(Repository.GITLET_DIR, "commits");
     /** The message of the Commit. */
@@ -29,7 +33,7 @@ public class Commit implements Serializable {
     private String prevCommit2;
 
     /** Main constructor for creating Commit object. */
-    public Commit(String m, String pC, String[] fileNames, String[] blobs) {
+    public Commit(String m, String pC, String[] fileNames, String[] blobs, Journal journal) {
         message = m;
         timestamp = new Date();
         sha1Name = Utils.sha1(UUID.randomUUID().toString());
@@ -41,11 +45,12 @@ public class Commit implements Serializable {
             files.put(fileNames[i], blobs[i]);
         }
 
-        saveCommit();
+        saveCommit(journal);
     }
 
     /** Constructor for creating Commit object after a merge. */
-    public Commit(String m, String pC, String pC2, String[] fileNames, String[] blobs) {
+    public Commit(String m, String pC, String pC2, String[] fileNames, String[] blobs,
+                  Journal journal) {
         message = m;
         timestamp = new Date();
         sha1Name = Utils.sha1(UUID.randomUUID().toString());
@@ -57,11 +62,11 @@ public class Commit implements Serializable {
             files.put(fileNames[i], blobs[i]);
         }
 
-        saveCommit();
+        saveCommit(journal);
     }
 
     /** Constructor for creating commit0. */
-    public Commit(String m) {
+    public Commit(String m, Journal journal) {
         message = m;
         Calendar c = Calendar.getInstance();
         c.set(1970, 0, 1, 0, 0, 0);
@@ -71,17 +76,38 @@ public class Commit implements Serializable {
         prevCommit2 = null;
         files = null;
 
-        saveCommit();
+        saveCommit(journal);
     }
 
-    /** Saves Commit to commits folder in .gitlet as a file. */
-    public void saveCommit() {
-        Utils.writeObject(Utils.join(COMMIT_FOLDER, sha1Name + ".txt"), this);
+    /** Saves Commit to commits folder in .gitlet as a file through JOURNAL. */
+    public void saveCommit(Journal journal) {
+        journal.writeObject(Utils.join(COMMIT_FOLDER, sha1Name + ".txt"), this);
     }
 
     /** Reads Commit into an object given the filename. */
     public static Commit readCommit(String id) {
-        return Utils.readObject(Utils.join(COMMIT_FOLDER, id + ".txt"), Commit.class);
+        return readCommit(COMMIT_FOLDER, id);
+    }
+
+    /** Reads the Commit named ID from FOLDER, the commits folder of this or
+     *  another repository. */
+    public static Commit readCommit(File folder, String id) {
+        long start = Trace.start();
+        Event event = FlightEvents.begin(FlightEvents.OBJECT_READ);
+        File file = Utils.join(folder, id + ".txt");
+        Commit c = Utils.readObject(file, Commit.class);
+        if (event != null) {
+            FlightEvents.commit(event, folder.getName(), id, file.length());
+        }
+        Trace.time("Commit.readCommit", start);
+        return c;
+    }
+
+    /** Returns true if SAVED, a Commit received from another repository,
+     *  is a Commit named ID. Commits are named at random when made, so only
+     *  the name they carry can be checked. */
+    static boolean holds(File saved, String id) {
+        return id.equals(Utils.readObject(saved, Commit.class).getName());
     }
 
     /** Returns the message of the Commit. */
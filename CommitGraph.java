@@ -0,0 +1,248 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/** The parents of each Commit and a Bloom filter of the files it changed
+ *  from its first parent, kept in .gitlet/commit-graph so that walking the
+ *  history for one file reads neither Commit files nor file maps: a Commit
+ *  whose filter rules the file out is skipped on its filter alone, and only
+ *  the few that might have changed it are read to make sure. The saved
+ *  entries are appended one after another, each under its Commit's name and
+ *  length, so that opening the graph only notes where each entry is, and an
+ *  entry is read once a walk meets its Commit. Entries missing from the
+ *  file are worked out when a walk meets their Commit, but are only saved
+ *  by commands holding an exclusive lock, such as git gc, which saves the
+ *  entries of every branch. A Commit on the boundary of a shallow clone
+ *  gets no saved entry, as what it changed is only known once its parent
+ *  arrives.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class CommitGraph {
+
+    /** The file that the entries are saved in. */
+    static final File GRAPH_FILE = Utils.join(Repository.GITLET_DIR, "commit-graph");
+    /** First bytes of a saved graph. */
+    static final int MAGIC = 0x474c4347;
+    /** False-positive rate of each changed-path filter. */
+    static final double FP_RATE = 0.01;
+
+    /** The history of the repository. */
+    private History history;
+    /** Where the saved entry of each Commit starts in GRAPH_FILE. */
+    private HashMap<String, Long> offsets;
+    /** Length of the saved entries, which a torn entry is cut back to. */
+    private long end;
+    /** GRAPH_FILE, once an entry has been read from it. */
+    private RandomAccessFile saved;
+    /** The parents of each Commit whose entry is known. */
+    private HashMap<String, List<String>> parents;
+    /** The changed-path filter of each Commit whose entry is known. */
+    private HashMap<String, BloomFilter> filters;
+    /** Commits whose entries were worked out but not saved yet. */
+    private ArrayList<String> added;
+
+    /** Opens the graph of the Commits of HISTORY. */
+    public CommitGraph(History history) {
+        this.history = history;
+        offsets = new HashMap<>();
+        parents = new HashMap<>();
+        filters = new HashMap<>();
+        added = new ArrayList<>();
+        if (GRAPH_FILE.isFile()) {
+            index();
+        }
+    }
+
+    /** Notes where each entry saved in GRAPH_FILE starts, skipping over the
+     *  entries themselves, and stops at a damaged one. */
+    private void index() {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(GRAPH_FILE), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            long position = 4;
+            while (true) {
+                String id = Protocol.readId(in);
+                int length = in.readInt();
+                in.skipNBytes(length);
+                position += Protocol.ID_SIZE + 4;
+                offsets.put(id, position);
+                position += length;
+                end = position;
+            }
+        } catch (IOException excp) {
+            //The end of the entries, possibly in the middle of a torn one
+        }
+    }
+
+    /** Reads the saved entry of the Commit ID, which starts at OFFSET,
+     *  returning false if it is damaged. */
+    private boolean read(String id, long offset) {
+        try {
+            if (saved == null) {
+                saved = new RandomAccessFile(GRAPH_FILE, "r");
+            }
+            saved.seek(offset - 4);
+            byte[] entry = new byte[saved.readInt()];
+            saved.readFully(entry);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+            List<String> ids = Protocol.readIds(in);
+            BloomFilter filter = BloomFilter.read(in);
+            if (filter == null) {
+                return false;
+            }
+            parents.put(id, ids);
+            filters.put(id, filter);
+            return true;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Returns the Commits, from HEAD back along first parents, that
+     *  changed FILENAME from their first parent, newest first. */
+    public List<Commit> changes(String head, String filename) {
+        String key = Utils.sha1(filename);
+        ArrayList<Commit> changes = new ArrayList<>();
+        String id = head;
+        while (id != null) {
+            List<String> ps = entry(id);
+            if (filters.get(id).mightContain(key)) {
+                String before = ps.isEmpty() ? null
+                        : history.read(ps.get(0)).getFiles().get(filename);
+                Commit c = history.read(id);
+                String after = c.getFiles().get(filename);
+                if (after == null ? before != null : !after.equals(before)) {
+                    changes.add(c);
+                }
+            }
+            id = ps.isEmpty() ? null : ps.get(0);
+        }
+        return changes;
+    }
+
+    /** Returns the parents of the Commit ID, reading its entry or working
+     *  it out if it has none. */
+    private List<String> entry(String id) {
+        List<String> ps = parents.get(id);
+        if (ps == null && offsets.containsKey(id) && read(id, offsets.get(id))) {
+            ps = parents.get(id);
+        }
+        Trace.cache("commit graph", ps != null);
+        if (ps != null) {
+            return ps;
+        }
+        Commit c = history.read(id);
+        ps = history.parents(c);
+        Map<String, String> before = ps.isEmpty() ? Map.of() : history.read(ps.get(0)).getFiles();
+        TreeSet<String> changed = changedFiles(before, c.getFiles());
+        BloomFilter filter = new BloomFilter(changed.size(), FP_RATE);
+        for (String filename : changed) {
+            filter.add(Utils.sha1(filename));
+        }
+        parents.put(id, ps);
+        filters.put(id, filter);
+        added.add(id);
+        return ps;
+    }
+
+    /** Works out the entries of the Commits from HEAD back along first
+     *  parents, which is what a walk for one file meets. */
+    public void cover(String head) {
+        String id = head;
+        while (id != null) {
+            List<String> ps = entry(id);
+            id = ps.isEmpty() ? null : ps.get(0);
+        }
+    }
+
+    /** Returns the files whose Blobs differ between BEFORE and AFTER,
+     *  including those only one of them has. */
+    static TreeSet<String> changedFiles(Map<String, String> before, Map<String, String> after) {
+        TreeSet<String> changed = new TreeSet<>();
+        for (Map.Entry<String, String> file : after.entrySet()) {
+            if (!file.getValue().equals(before.get(file.getKey()))) {
+                changed.add(file.getKey());
+            }
+        }
+        for (String filename : before.keySet()) {
+            if (!after.containsKey(filename)) {
+                changed.add(filename);
+            }
+        }
+        return changed;
+    }
+
+    /** Appends the entries worked out since the graph was opened to
+     *  GRAPH_FILE, leaving out the Commits on the boundary of a shallow
+     *  clone, and cutting off a torn entry first. Must only be called while
+     *  holding an exclusive RepositoryLock. */
+    public void save() {
+        HashSet<String> boundary = new HashSet<>(history.boundary());
+        added.removeAll(boundary);
+        if (added.isEmpty()) {
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(GRAPH_FILE, "rw")) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (end == 0) {
+                out.writeInt(MAGIC);
+            }
+            ArrayList<Long> starts = new ArrayList<>();
+            for (String id : added) {
+                ByteArrayOutputStream entry = new ByteArrayOutputStream();
+                Protocol.writeIds(new DataOutputStream(entry), parents.get(id));
+                entry.write(filters.get(id).toBytes());
+                Protocol.writeId(out, id);
+                out.writeInt(entry.size());
+                starts.add(end + out.size());
+                entry.writeTo(out);
+            }
+            file.setLength(end);
+            file.seek(end);
+            file.write(bytes.toByteArray());
+            for (int i = 0; i < added.size(); i++) {
+                offsets.put(added.get(i), starts.get(i));
+            }
+            end = file.length();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        added.clear();
+    }
+
+    /** Closes the saved graph once no more entries are read from it. */
+    public void close() {
+        if (saved != null) {
+            try {
+                saved.close();
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp);
+            }
+            saved = null;
+        }
+    }
+
+    /** Deletes the saved graph. Used for git gc, as it names Commits that
+     *  may be deleted. */
+    public static void clear() {
+        GRAPH_FILE.delete();
+    }
+}
@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/** Represents the settings of a gitlet repository, kept in .gitlet/config
+ *  as "key=value" lines.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Config {
+
+    /** The file that the settings are saved in. */
+    static final File CONFIG_FILE = Utils.join(Repository.GITLET_DIR, "config");
+
+    /** All the settings (key = setting name, value = setting value). */
+    private Properties settings;
+
+    /** Reads the settings of the repository, if it has any. */
+    public Config() {
+        settings = new Properties();
+        if (CONFIG_FILE.isFile()) {
+            try (InputStream in = new FileInputStream(CONFIG_FILE)) {
+                settings.load(in);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp);
+            }
+        }
+    }
+
+    /** Returns the value of KEY, or DEFAULTVALUE if it is not set. */
+    public String get(String key, String defaultValue) {
+        return settings.getProperty(key, defaultValue);
+    }
+
+    /** Returns the value of KEY as a number, or DEFAULTVALUE if it is not set. */
+    public long getLong(String key, long defaultValue) {
+        String value = settings.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException excp) {
+            return defaultValue;
+        }
+    }
+
+    /** Sets KEY to VALUE and saves the settings. */
+    public void set(String key, String value) {
+        settings.setProperty(key, value);
+        save();
+    }
+
+    /** Removes the setting KEY and saves the settings. */
+    public void unset(String key) {
+        settings.remove(key);
+        save();
+    }
+
+    /** Saves the settings to CONFIG_FILE, which is replaced atomically and
+     *  synced, so that a crash never leaves it torn. */
+    private void save() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            settings.store(out, null);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        Journal.replace(CONFIG_FILE, out.toByteArray(), true);
+    }
+
+    /** Prints the value of KEY, or sets it to VALUE if VALUE is not null.
+     *  Used for git config. */
+    public void config(String key, String value) {
+        if (key.equals("core.durability") && value != null && !Journal.isDurability(value)) {
+            System.out.println("core.durability must be none, batch or always.");
+            System.exit(0);
+        }
+        if (value != null) {
+            set(key, value);
+        } else if (settings.getProperty(key) != null) {
+            System.out.println(settings.getProperty(key));
+        }
+    }
+}
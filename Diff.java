@@ -0,0 +1,494 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** Computes and prints line-based differences between two versions of the
+ *  tracked files. Lines are compared with Myers' linear-space algorithm and
+ *  printed as unified hunks, or summarized per file in --stat mode.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Diff {
+
+    /** Number of unchanged lines printed around each change. */
+    static final int CONTEXT = 3;
+    /** Widest bar of +/- characters printed in --stat mode. */
+    static final int STAT_WIDTH = 50;
+    /** Size of files past which they are shown as binary without being read,
+     *  as a diff holds both versions and their lines in memory at once. Kept
+     *  well below the default merge.memoryBudget. */
+    static final long MAX_TEXT_SIZE = 4L << 20;
+
+    /** True if only a per-file summary should be printed. */
+    private boolean stat;
+    /** The journal told of the Blobs that a partial clone fetches. */
+    private Journal journal;
+    /** Per-file summary lines collected in --stat mode. */
+    private ArrayList<String> statNames;
+    /** Insertions and deletions for each entry of statNames; -1 if binary. */
+    private ArrayList<int[]> statCounts;
+
+    /** Line ids of the old version of the file being compared. */
+    private int[] a;
+    /** Line ids of the new version of the file being compared. */
+    private int[] b;
+    /** Lines of A that are not part of the longest common subsequence. */
+    private boolean[] deleted;
+    /** Lines of B that are not part of the longest common subsequence. */
+    private boolean[] inserted;
+    /** Forward furthest-reaching x for each diagonal of the middle snake search. */
+    private int[] vf;
+    /** Backward furthest-reaching x for each diagonal of the middle snake search. */
+    private int[] vb;
+
+    /** Creates a Diff printing a summary only if STATONLY, which tells
+     *  JOURNAL of the Blobs it fetches. */
+    public Diff(boolean statOnly, Journal journal) {
+        stat = statOnly;
+        this.journal = journal;
+        statNames = new ArrayList<>();
+        statCounts = new ArrayList<>();
+    }
+
+    /** Compares every path in BEFORE and AFTER (key = filename, value = blob
+     *  name). A null blob name in AFTER means the file is read from the CWD.
+     *  Blobs are only read for paths whose names differ, and those that a
+     *  partial clone lacks are fetched in one batch first. Removed files that
+     *  are similar to added ones are shown as renames. */
+    public void compareTrees(Map<String, String> before, Map<String, String> after) {
+        TreeSet<String> paths = new TreeSet<>(before.keySet());
+        paths.addAll(after.keySet());
+        ArrayList<String> changed = new ArrayList<>();
+        for (String path : paths) {
+            if (!Objects.equals(before.get(path), after.get(path))) {
+                changed.add(before.get(path));
+                changed.add(after.get(path));
+            }
+        }
+        Remote.fetchAbsent(changed, journal);
+        Renames detector = new Renames(Renames.SIMILARITY);
+        TreeMap<String, String> renames = Renames.between(before, after, detector);
+        HashSet<String> renamedFrom = new HashSet<>(renames.values());
+        for (String path : paths) {
+            String oldId = before.get(path);
+            String newId = after.get(path);
+            if (oldId != null && oldId.equals(newId) || renamedFrom.contains(path)) {
+                continue;
+            }
+            String oldPath = renames.getOrDefault(path, path);
+            if (tooLarge(before.get(oldPath), oldPath) || tooLarge(newId, path)) {
+                printBinary(oldPath, path, before.containsKey(oldPath) ? new byte[0] : null,
+                        after.containsKey(path) ? new byte[0] : null, detector.similarity(path));
+                continue;
+            }
+            byte[] oldFile = before.containsKey(oldPath) ? detector.load(before.get(oldPath), oldPath)
+                    : null;
+            byte[] newFile = after.containsKey(path) ? detector.load(newId, path) : null;
+            if (renames.containsKey(path)) {
+                compareFiles(oldPath, path, oldFile, newFile, detector.similarity(path));
+            } else {
+                compareFiles(path, path, oldFile, newFile, 0);
+            }
+        }
+        if (stat) {
+            printStat();
+        }
+    }
+
+    /** Returns true if blob ID, or the CWD copy of PATH if ID is null, is
+     *  larger than MAX_TEXT_SIZE. Only the header of the blob is read. */
+    static boolean tooLarge(String id, String path) {
+        if (id == null) {
+            return Utils.join(Repository.CWD, path).length() > MAX_TEXT_SIZE;
+        }
+        return Blob.readBlob(id).length() > MAX_TEXT_SIZE;
+    }
+
+    /** Returns the contents of blob ID, or of the CWD copy of PATH if ID is null. */
+    static byte[] load(String id, String path) {
+        if (id == null) {
+            return Utils.readContents(Utils.join(Repository.CWD, path));
+        }
+        return Blob.readBlob(id).getFile();
+    }
+
+    /** Prints the difference between OLDFILE and NEWFILE, either of which may
+     *  be null if PATH does not exist on that side. */
+    public void compareFiles(String path, byte[] oldFile, byte[] newFile) {
+        compareFiles(path, path, oldFile, newFile, 0);
+    }
+
+    /** Prints the difference between OLDFILE, named OLDPATH, and NEWFILE,
+     *  named NEWPATH. SIMILARITY is the rename score if the names differ. */
+    private void compareFiles(String oldPath, String newPath, byte[] oldFile, byte[] newFile,
+                              int similarity) {
+        boolean renamed = !oldPath.equals(newPath);
+        String name = renamed ? oldPath + " => " + newPath : newPath;
+        if (!renamed && oldFile != null && newFile != null && Arrays.equals(oldFile, newFile)) {
+            return;
+        }
+        if (isBinary(oldFile) || isBinary(newFile)) {
+            printBinary(oldPath, newPath, oldFile, newFile, similarity);
+            return;
+        }
+        String[] oldLines = splitLines(oldFile);
+        String[] newLines = splitLines(newFile);
+        boolean oldNoEol = oldFile != null && !endsWithNewline(oldFile);
+        boolean newNoEol = newFile != null && !endsWithNewline(newFile);
+        HashMap<String, Integer> ids = new HashMap<>();
+        align(lineIds(oldLines, ids, oldNoEol), lineIds(newLines, ids, newNoEol));
+
+        ArrayList<int[]> blocks = changeBlocks();
+        if (stat) {
+            int ins = 0;
+            int del = 0;
+            for (int[] block : blocks) {
+                del += block[1] - block[0];
+                ins += block[3] - block[2];
+            }
+            statNames.add(name);
+            statCounts.add(new int[] {ins, del});
+        } else {
+            printHeader(oldPath, newPath, oldFile, newFile, similarity);
+            printHunks(blocks, oldLines, newLines, oldNoEol, newNoEol);
+        }
+        a = null;
+        b = null;
+        vf = null;
+        vb = null;
+    }
+
+    /** Returns, for each of NEWLINES, the index of the line of OLDLINES it
+     *  was kept from, or -1 if it was inserted. Helper for git blame. */
+    public int[] matchLines(String[] oldLines, String[] newLines) {
+        HashMap<String, Integer> ids = new HashMap<>();
+        align(lineIds(oldLines, ids, false), lineIds(newLines, ids, false));
+        int[] origins = new int[b.length];
+        int i = 0;
+        for (int j = 0; j < b.length; j++) {
+            if (inserted[j]) {
+                origins[j] = -1;
+                continue;
+            }
+            while (deleted[i]) {
+                i++;
+            }
+            origins[j] = i;
+            i++;
+        }
+        a = null;
+        b = null;
+        vf = null;
+        vb = null;
+        return origins;
+    }
+
+    /** Marks the lines of OLDIDS and NEWIDS that are not in their longest
+     *  common subsequence in DELETED and INSERTED. */
+    private void align(int[] oldIds, int[] newIds) {
+        a = oldIds;
+        b = newIds;
+        deleted = new boolean[a.length];
+        inserted = new boolean[b.length];
+        int max = (a.length + b.length + 1) / 2 + 2;
+        vf = new int[2 * max + 1];
+        vb = new int[2 * max + 1];
+        compare(0, a.length, 0, b.length);
+    }
+
+    /** Marks the lines of A[ALO..AHI) and B[BLO..BHI) that are not in their
+     *  longest common subsequence, recursing on either side of a middle snake. */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi) {
+            for (int j = bLo; j < bHi; j++) {
+                inserted[j] = true;
+            }
+            return;
+        }
+        if (bLo == bHi) {
+            for (int i = aLo; i < aHi; i++) {
+                deleted[i] = true;
+            }
+            return;
+        }
+        int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+        compare(aLo, snake[0], bLo, snake[1]);
+        compare(snake[2], aHi, snake[3], bHi);
+    }
+
+    /** Returns {x, y, u, v}, the start and end of the middle snake of an
+     *  optimal edit path between A[ALO..AHI) and B[BLO..BHI). */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int off = vf.length / 2;
+        int max = (n + m + 1) / 2;
+        vf[off + 1] = 0;
+        vb[off + 1] = 0;
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && vf[off + k - 1] < vf[off + k + 1])) {
+                    x = vf[off + k + 1];
+                } else {
+                    x = vf[off + k - 1] + 1;
+                }
+                int y = x - k;
+                int xs = x;
+                int ys = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                vf[off + k] = x;
+                int c = delta - k;
+                if (odd && c >= -(d - 1) && c <= d - 1 && x + vb[off + c] >= n) {
+                    return new int[] {aLo + xs, bLo + ys, aLo + x, bLo + y};
+                }
+            }
+            for (int c = -d; c <= d; c += 2) {
+                int x;
+                if (c == -d || (c != d && vb[off + c - 1] < vb[off + c + 1])) {
+                    x = vb[off + c + 1];
+                } else {
+                    x = vb[off + c - 1] + 1;
+                }
+                int y = x - c;
+                int xs = x;
+                int ys = y;
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                vb[off + c] = x;
+                int k = delta - c;
+                if (!odd && k >= -d && k <= d && x + vf[off + k] >= n) {
+                    return new int[] {aHi - x, bHi - y, aHi - xs, bHi - ys};
+                }
+            }
+        }
+        throw Utils.error("Internal error computing diff.");
+    }
+
+    /** Returns the runs of changed lines as {aStart, aEnd, bStart, bEnd}. */
+    private ArrayList<int[]> changeBlocks() {
+        ArrayList<int[]> blocks = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && !deleted[i] && !inserted[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int i0 = i;
+            int j0 = j;
+            while (i < a.length && deleted[i]) {
+                i++;
+            }
+            while (j < b.length && inserted[j]) {
+                j++;
+            }
+            blocks.add(new int[] {i0, i, j0, j});
+        }
+        return blocks;
+    }
+
+    /** Prints BLOCKS as unified hunks, one hunk at a time. */
+    private void printHunks(ArrayList<int[]> blocks, String[] oldLines, String[] newLines,
+                            boolean oldNoEol, boolean newNoEol) {
+        int first = 0;
+        while (first < blocks.size()) {
+            int last = first;
+            while (last + 1 < blocks.size()
+                    && blocks.get(last + 1)[0] - blocks.get(last)[1] <= 2 * CONTEXT) {
+                last++;
+            }
+            int aStart = Math.max(0, blocks.get(first)[0] - CONTEXT);
+            int bStart = Math.max(0, blocks.get(first)[2] - CONTEXT);
+            int aEnd = Math.min(oldLines.length, blocks.get(last)[1] + CONTEXT);
+            int bEnd = Math.min(newLines.length, blocks.get(last)[3] + CONTEXT);
+
+            StringBuilder hunk = new StringBuilder();
+            hunk.append("@@ -").append(range(aStart, aEnd - aStart))
+                    .append(" +").append(range(bStart, bEnd - bStart)).append(" @@\n");
+            int i = aStart;
+            for (int n = first; n <= last; n++) {
+                int[] block = blocks.get(n);
+                for (; i < block[0]; i++) {
+                    appendLine(hunk, ' ', oldLines, i, oldNoEol);
+                }
+                for (; i < block[1]; i++) {
+                    appendLine(hunk, '-', oldLines, i, oldNoEol);
+                }
+                for (int j = block[2]; j < block[3]; j++) {
+                    appendLine(hunk, '+', newLines, j, newNoEol);
+                }
+            }
+            for (; i < aEnd; i++) {
+                appendLine(hunk, ' ', oldLines, i, oldNoEol && newNoEol);
+            }
+            System.out.print(hunk);
+            first = last + 1;
+        }
+    }
+
+    /** Appends line I of LINES to HUNK with the given PREFIX. */
+    private void appendLine(StringBuilder hunk, char prefix, String[] lines, int i, boolean noEol) {
+        hunk.append(prefix).append(lines[i]).append('\n');
+        if (noEol && i == lines.length - 1) {
+            hunk.append("\\ No newline at end of file\n");
+        }
+    }
+
+    /** Returns a unified-diff line range starting at 0-based START. */
+    private static String range(int start, int length) {
+        if (length == 0) {
+            return start + ",0";
+        }
+        return (start + 1) + "," + length;
+    }
+
+    /** Prints that OLDFILE, named OLDPATH, and NEWFILE, named NEWPATH,
+     *  differ without comparing them. SIMILARITY is the rename score if the
+     *  names differ. */
+    private void printBinary(String oldPath, String newPath, byte[] oldFile, byte[] newFile,
+                             int similarity) {
+        if (stat) {
+            statNames.add(oldPath.equals(newPath) ? newPath : oldPath + " => " + newPath);
+            statCounts.add(new int[] {-1, -1});
+        } else {
+            printHeader(oldPath, newPath, oldFile, newFile, similarity);
+            System.out.println("Binary files " + (oldFile == null ? "/dev/null" : "a/" + oldPath)
+                    + " and " + (newFile == null ? "/dev/null" : "b/" + newPath) + " differ");
+        }
+    }
+
+    /** Prints the diff header for OLDPATH and NEWPATH. */
+    private void printHeader(String oldPath, String newPath, byte[] oldFile, byte[] newFile,
+                             int similarity) {
+        System.out.println("diff --gitlet a/" + oldPath + " b/" + newPath);
+        if (oldFile == null) {
+            System.out.println("new file");
+        } else if (newFile == null) {
+            System.out.println("deleted file");
+        } else if (!oldPath.equals(newPath)) {
+            System.out.println("similarity index " + similarity + "%");
+            System.out.println("rename from " + oldPath);
+            System.out.println("rename to " + newPath);
+        }
+        System.out.println("--- " + (oldFile == null ? "/dev/null" : "a/" + oldPath));
+        System.out.println("+++ " + (newFile == null ? "/dev/null" : "b/" + newPath));
+    }
+
+    /** Prints the collected --stat summary. */
+    private void printStat() {
+        if (statNames.isEmpty()) {
+            return;
+        }
+        int nameWidth = 0;
+        int most = 0;
+        int insertions = 0;
+        int deletions = 0;
+        for (int i = 0; i < statNames.size(); i++) {
+            nameWidth = Math.max(nameWidth, statNames.get(i).length());
+            int[] counts = statCounts.get(i);
+            most = Math.max(most, counts[0] + counts[1]);
+            if (counts[0] >= 0) {
+                insertions += counts[0];
+                deletions += counts[1];
+            }
+        }
+        for (int i = 0; i < statNames.size(); i++) {
+            int[] counts = statCounts.get(i);
+            StringBuilder line = new StringBuilder(" ");
+            line.append(statNames.get(i));
+            line.append(" ".repeat(nameWidth - statNames.get(i).length())).append(" | ");
+            if (counts[0] < 0) {
+                line.append("Bin");
+            } else {
+                int total = counts[0] + counts[1];
+                int plus = counts[0];
+                int minus = counts[1];
+                if (most > STAT_WIDTH) {
+                    plus = (int) ((long) plus * STAT_WIDTH / most);
+                    minus = (int) ((long) minus * STAT_WIDTH / most);
+                }
+                line.append(total).append(' ').append("+".repeat(plus)).append("-".repeat(minus));
+            }
+            System.out.println(line);
+        }
+        System.out.println(" " + statNames.size() + (statNames.size() == 1 ? " file" : " files")
+                + " changed, " + insertions + (insertions == 1 ? " insertion(+), " : " insertions(+), ")
+                + deletions + (deletions == 1 ? " deletion(-)" : " deletions(-)"));
+    }
+
+    /** Returns LINES converted to small integer ids, shared through IDS. A
+     *  last line missing its newline (NOEOL) never matches one that has it. */
+    private static int[] lineIds(String[] lines, HashMap<String, Integer> ids, boolean noEol) {
+        int[] result = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            String key = lines[i];
+            if (noEol && i == lines.length - 1) {
+                key = key + "\0";
+            }
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+            }
+            result[i] = id;
+        }
+        return result;
+    }
+
+    /** Returns the lines of FILE without their line terminators. */
+    static String[] splitLines(byte[] file) {
+        if (file == null || file.length == 0) {
+            return new String[0];
+        }
+        String text = new String(file, StandardCharsets.UTF_8);
+        if (text.endsWith("\n")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        return text.split("\n", -1);
+    }
+
+    /** Returns true if FILE is empty or ends with a newline, so that its
+     *  last line needs no "No newline at end of file" marker. */
+    private static boolean endsWithNewline(byte[] file) {
+        return file.length == 0 || file[file.length - 1] == '\n';
+    }
+
+    /** Returns true if FILE looks like binary data (has a NUL byte near the start). */
+    static boolean isBinary(byte[] file) {
+        if (file == null) {
+            return false;
+        }
+        int limit = Math.min(file.length, 8000);
+        for (int i = 0; i < limit; i++) {
+            if (file[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
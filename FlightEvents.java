@@ -0,0 +1,138 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.AnnotationElement;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventFactory;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.ValueDescriptor;
+
+/** The Java Flight Recorder events of the object store, which let gitlet's
+ *  own operations be told apart from other file I/O in a recording and be
+ *  set against GC and disk activity. The event types are made with an
+ *  EventFactory and carried by the CommandThread of a command, as a
+ *  subclass of Event would hold a static field of the recorder's. A call
+ *  site asks begin() for an event, does its work and, if it got one,
+ *  passes it with its values to commit(), so that nothing is boxed when
+ *  no recording wants the event. begin() returns null, at the cost of a
+ *  type check, unless the command emits events and the type is enabled
+ *  right then, so a recording started later, such as by jcmd JFR.start
+ *  against a running server, gets events from then on. A program that
+ *  calls gitlet as a library gets the events by making its calls through
+ *  CommandThread.run with a new FlightEvents.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class FlightEvents {
+
+    /** A Commit, Blob or chunk read from the object store: kind, id, size. */
+    static final int OBJECT_READ = 0;
+    /** An object written to the object store: kind, id, size, synced. */
+    static final int OBJECT_WRITE = 1;
+    /** The staging area or another ref replaced: file, size, synced. */
+    static final int INDEX_SAVE = 2;
+    /** A walk of the Commit graph: walk, start, visited. */
+    static final int ANCESTRY_WALK = 3;
+    /** A file of the working directory written by a checkout: file, id,
+     *  size, mode. */
+    static final int CHECKOUT_WRITE = 4;
+    /** The category of every gitlet event. */
+    static final String CATEGORY = "Gitlet";
+
+    /** The factories of the event types, indexed by the constants above. */
+    private EventFactory[] factories;
+
+    /** Registers the event types with the Flight Recorder. */
+    public FlightEvents() {
+        factories = new EventFactory[] {
+            type("ObjectRead", "Object Read", "An object read from the object store",
+                    field(String.class, "kind", "Kind"), field(String.class, "id", "Object ID"),
+                    bytes("size", "Size")),
+            type("ObjectWrite", "Object Write", "An object written to the object store",
+                    field(String.class, "kind", "Kind"), field(String.class, "id", "Object ID"),
+                    bytes("size", "Size"), field(boolean.class, "synced", "Synced")),
+            type("IndexSave", "Index Save", "The staging area or a ref replaced on disk",
+                    field(String.class, "file", "File"), bytes("size", "Size"),
+                    field(boolean.class, "synced", "Synced")),
+            type("AncestryWalk", "Ancestry Walk", "A walk of the commit graph",
+                    field(String.class, "walk", "Walk"), field(String.class, "start", "Start"),
+                    field(int.class, "visited", "Commits Visited")),
+            type("CheckoutWrite", "Checkout Write", "A working file written by a checkout",
+                    field(String.class, "file", "File"), field(String.class, "id", "Blob ID"),
+                    bytes("size", "Size"), field(String.class, "mode", "Mode")),
+        };
+    }
+
+    /** Returns true if the Flight Recorder was started with this JVM, in
+     *  which case a command is worth running with FlightEvents. */
+    public static boolean recording() {
+        return FlightRecorder.isAvailable() && FlightRecorder.isInitialized();
+    }
+
+    /** Returns true if this JVM has a Flight Recorder, which a process that
+     *  runs for long, like a server, may have started at any time. */
+    public static boolean available() {
+        return FlightRecorder.isAvailable();
+    }
+
+    /** Returns a begun event of TYPE, or null if none is wanted. */
+    static Event begin(int type) {
+        FlightEvents events = CommandThread.currentEvents();
+        if (events == null) {
+            return null;
+        }
+        EventFactory factory = events.factories[type];
+        if (!factory.getEventType().isEnabled()) {
+            return null;
+        }
+        Event event = factory.newEvent();
+        event.begin();
+        return event;
+    }
+
+    /** Ends EVENT, setting its fields to VALUES in order, and commits it if
+     *  it passes the thresholds of the recording. EVENT may be null. */
+    static void commit(Event event, Object... values) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            for (int i = 0; i < values.length; i++) {
+                event.set(i, values[i]);
+            }
+            event.commit();
+        }
+    }
+
+    /** Returns the factory of the event gitlet.NAME shown as LABEL and
+     *  described by DESCRIPTION, whose fields are FIELDS. */
+    private static EventFactory type(String name, String label, String description,
+                                     ValueDescriptor... fields) {
+        List<AnnotationElement> annotations = new ArrayList<>();
+        annotations.add(new AnnotationElement(Name.class, "gitlet." + name));
+        annotations.add(new AnnotationElement(Label.class, label));
+        annotations.add(new AnnotationElement(Description.class, description));
+        annotations.add(new AnnotationElement(Category.class, new String[] {CATEGORY}));
+        return EventFactory.create(annotations, List.of(fields));
+    }
+
+    /** Returns the field NAME of TYPE shown as LABEL. */
+    private static ValueDescriptor field(Class<?> type, String name, String label) {
+        return new ValueDescriptor(type, name,
+                List.of(new AnnotationElement(Label.class, label)));
+    }
+
+    /** Returns the field NAME counting bytes, shown as LABEL. */
+    private static ValueDescriptor bytes(String name, String label) {
+        return new ValueDescriptor(long.class, name,
+                List.of(new AnnotationElement(Label.class, label),
+                        new AnnotationElement(DataAmount.class, DataAmount.BYTES)));
+    }
+}
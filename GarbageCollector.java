@@ -0,0 +1,158 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/** Deletes the Commits and Blobs that can no longer be reached from any
+ *  branch or from the staging area. Reachable objects are marked by walking
+ *  the commit graph one generation at a time, reading each generation's
+ *  Commits in parallel; unreachable objects are only deleted once they are
+ *  older than a grace period, so that objects written by a command that is
+ *  still running are never removed.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class GarbageCollector {
+
+    /** Default grace period in days. */
+    static final long GRACE_DAYS = 14;
+    /** Milliseconds in a day. */
+    static final long DAY = 24L * 60 * 60 * 1000;
+
+    /** The names of all reachable Commits. */
+    private Set<String> commits;
+    /** The names of all reachable Blobs. */
+    private Set<String> blobs;
+    /** The names of all reachable chunks. */
+    private Set<String> chunks;
+    /** Number of Commits deleted by sweep. */
+    private int commitsDeleted;
+    /** Number of Blobs deleted by sweep. */
+    private int blobsDeleted;
+    /** Number of chunks deleted by sweep. */
+    private int chunksDeleted;
+
+    public GarbageCollector() {
+        commits = ConcurrentHashMap.newKeySet();
+        blobs = ConcurrentHashMap.newKeySet();
+        chunks = ConcurrentHashMap.newKeySet();
+    }
+
+    /** Marks every Commit reachable from COMMITROOTS, with all their Blobs,
+     *  and every Blob in BLOBROOTS as reachable, along with the chunks of the
+     *  reachable Blobs that were split. */
+    public void mark(Collection<String> commitRoots, Collection<String> blobRoots) {
+        CommandThread.parallel(() -> markFrom(commitRoots, blobRoots));
+    }
+
+    /** Does the work of mark(COMMITROOTS, BLOBROOTS). */
+    private void markFrom(Collection<String> commitRoots, Collection<String> blobRoots) {
+        blobs.addAll(blobRoots);
+        List<String> generation = new ArrayList<>();
+        for (String root : commitRoots) {
+            if (root != null && commits.add(root)) {
+                generation.add(root);
+            }
+        }
+        while (!generation.isEmpty()) {
+            generation = generation.parallelStream()
+                    .flatMap(name -> {
+                        if (!Utils.join(Commit.COMMIT_FOLDER, name + ".txt").isFile()) {
+                            return Stream.<String>empty();
+                        }
+                        Commit c = Commit.readCommit(name);
+                        blobs.addAll(c.getFiles().values());
+                        ArrayList<String> parents = new ArrayList<>(2);
+                        if (c.getPrevCommit() != null && commits.add(c.getPrevCommit())) {
+                            parents.add(c.getPrevCommit());
+                        }
+                        if (c.getPrevCommit2() != null && commits.add(c.getPrevCommit2())) {
+                            parents.add(c.getPrevCommit2());
+                        }
+                        return parents.stream();
+                    })
+                    .collect(Collectors.toList());
+        }
+        String[] chunkFiles = Blob.CHUNK_FOLDER.list();
+        if (chunkFiles != null && chunkFiles.length > 0) {
+            blobs.parallelStream()
+                    .filter(name -> Utils.join(Blob.BLOB_FOLDER, name + ".txt").isFile())
+                    .map(Blob::readBlob)
+                    .filter(b -> b.getChunks() != null)
+                    .forEach(b -> chunks.addAll(b.getChunks()));
+        }
+    }
+
+    /** Deletes every unmarked Commit, Blob and chunk last written more than GRACE
+     *  milliseconds ago, along with the linked copies of unmarked Blobs and
+     *  those that no working file is linked to any more. */
+    public void sweep(long grace) {
+        long cutoff = System.currentTimeMillis() - grace;
+        CommandThread.parallel(() -> {
+            commitsDeleted = sweep(Commit.COMMIT_FOLDER, commits, cutoff);
+            blobsDeleted = sweep(Blob.BLOB_FOLDER, blobs, cutoff);
+            chunksDeleted = sweep(Blob.CHUNK_FOLDER, chunks, cutoff);
+            sweep(Blob.LINK_FOLDER, blobs, cutoff);
+            sweepUnlinked(Blob.LINK_FOLDER);
+        });
+    }
+
+    /** Deletes the files in FOLDER that have no other link, so that the
+     *  shared copies of files no longer checked out take no space. A later
+     *  checkout makes them again. */
+    private static void sweepUnlinked(File folder) {
+        List<String> names = Utils.plainFilenamesIn(folder);
+        if (names == null) {
+            return;
+        }
+        names.parallelStream().map(fileName -> Utils.join(folder, fileName)).forEach(file -> {
+            try {
+                if (((Number) Files.getAttribute(file.toPath(), "unix:nlink")).intValue() < 2) {
+                    file.delete();
+                }
+            } catch (IOException | UnsupportedOperationException excp) {
+                //Link counts are unknown here, so the copy is kept
+            }
+        });
+    }
+
+    /** Deletes the unmarked object files in FOLDER older than CUTOFF, where
+     *  MARKED holds the names of the reachable ones. Returns the number deleted. */
+    private static int sweep(File folder, Set<String> marked, long cutoff) {
+        List<String> names = Utils.plainFilenamesIn(folder);
+        if (names == null) {
+            return 0;
+        }
+        return names.parallelStream()
+                .filter(fileName -> fileName.endsWith(".txt"))
+                .filter(fileName -> !marked.contains(fileName.substring(0, fileName.length() - 4)))
+                .mapToInt(fileName -> {
+                    File file = Utils.join(folder, fileName);
+                    return file.lastModified() < cutoff && file.delete() ? 1 : 0;
+                })
+                .sum();
+    }
+
+    /** Returns the number of Commits deleted by the last sweep. */
+    public int commitsDeleted() {
+        return commitsDeleted;
+    }
+
+    /** Returns the number of Blobs deleted by the last sweep. */
+    public int blobsDeleted() {
+        return blobsDeleted;
+    }
+
+    /** Returns the number of chunks deleted by the last sweep. */
+    public int chunksDeleted() {
+        return chunksDeleted;
+    }
+}
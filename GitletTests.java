@@ -7,10 +7,12 @@ import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -19,12 +21,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.Permission;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -1499,4 +1503,665 @@ public class GitletTests {
         assertFileEquals(NOTF, "F.txt");
         assertFileEquals(G, "G.txt");
     }
+
+    @Test
+    public void test45_diffStat() throws IOException {
+        i_setup2();
+        gitletCommand(new String[]{"diff"}, "");
+        writeFile(NOTWUG, "f.txt");
+        gitletCommand(new String[]{"diff", "--stat"}, """
+                 f.txt | 2 +-
+                 1 file changed, 1 insertion(+), 1 deletion(-)
+                """);
+        gitletCommand(new String[]{"diff", "--cached"}, "");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"diff"}, "");
+        gitletCommand(new String[]{"diff", "--cached", "--stat"}, """
+                 f.txt | 2 +-
+                 1 file changed, 1 insertion(+), 1 deletion(-)
+                """);
+        String line = "a line of a large text file\n";
+        Files.writeString(Path.of("h.txt"), line.repeat((5 << 20) / line.length()));
+        gitletCommand(new String[]{"add", "h.txt"}, "");
+        gitletCommand(new String[]{"commit", "Large file"}, "");
+        Files.writeString(Path.of("h.txt"), line, StandardOpenOption.APPEND);
+        gitletCommand(new String[]{"diff", "--stat"}, """
+                 h.txt | Bin
+                 1 file changed, 0 insertions(+), 0 deletions(-)
+                """);
+        gitletCommand(new String[]{"diff"}, """
+                diff --gitlet a/h.txt b/h.txt
+                --- a/h.txt
+                +++ b/h.txt
+                Binary files a/h.txt and b/h.txt differ
+                """);
+    }
+
+    @Test
+    public void test46_renameStatus() {
+        i_setup2();
+        gitletCommand(new String[]{"rm", "f.txt"}, "");
+        writeFile(WUG, "h.txt");
+        gitletCommand(new String[]{"add", "h.txt"}, "");
+        gitletCommand(new String[]{"status"}, """
+                === Branches ===
+                *main
+
+                === Staged Files ===
+                h.txt (renamed from f.txt)
+
+                === Removed Files ===
+                f.txt
+
+                === Modifications Not Staged For Commit ===
+
+                === Untracked Files ===
+
+                """);
+        gitletCommand(new String[]{"diff", "--cached", "--stat"}, """
+                 f.txt => h.txt | 0
+                 1 file changed, 0 insertions(+), 0 deletions(-)
+                """);
+    }
+
+    @Test
+    public void test47_remoteErrors() {
+        i_setup2();
+        gitletCommand(new String[]{"add-remote", "other", "../nowhere/.gitlet"}, "");
+        gitletCommand(new String[]{"add-remote", "other", "../elsewhere/.gitlet"},
+                "A remote with that name already exists.");
+        gitletCommand(new String[]{"fetch", "other", "main"}, "Remote directory not found.");
+        gitletCommand(new String[]{"push", "other", "main"}, "Remote directory not found.");
+        gitletCommand(new String[]{"rm-remote", "other"}, "");
+        gitletCommand(new String[]{"rm-remote", "other"},
+                "A remote with that name does not exist.");
+    }
+
+    @Test
+    public void test48_shallowErrors() {
+        i_setup2();
+        gitletCommand(new String[]{"fetch", "--unshallow", "origin"},
+                "This repository is not shallow.");
+        gitletCommand(new String[]{"fetch", "--deepen=0", "origin"}, "Incorrect operands.");
+    }
+
+    @Test
+    public void test49_bundleErrors() {
+        i_setup2();
+        gitletCommand(new String[]{"bundle", "create", "x.bundle", "nobranch"},
+                "A branch with that name does not exist.");
+        gitletCommand(new String[]{"bundle", "create", "x.bundle", "main", "^main"},
+                "Refusing to create an empty bundle.");
+        gitletCommand(new String[]{"bundle", "unbundle", "x.bundle"}, "Bundle is corrupt.");
+    }
+
+    @Test
+    public void test50_mergeDeletedConflict() {
+        i_setup2();
+        gitletCommand(new String[]{"branch", "other"}, "");
+        gitletCommand(new String[]{"rm", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Remove f.txt"}, "");
+        gitletCommand(new String[]{"checkout", "other"}, "");
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f.txt"}, "");
+        gitletCommand(new String[]{"checkout", "main"}, "");
+        gitletCommand(new String[]{"merge", "other"}, "Encountered a merge conflict.");
+        assertFileExists("f.txt");
+        assertFileEquals(NOTWUG, "g.txt");
+        gitletCommandP(new String[]{"status"}, """
+                === Branches ===
+                \\*main
+                other
+
+                === Staged Files ===
+
+                === Removed Files ===
+
+                === Modifications Not Staged For Commit ===
+
+                === Untracked Files ===
+
+                """);
+    }
+
+    @Test
+    public void test51_sparseCheckout() {
+        i_setup2();
+        gitletCommand(new String[]{"sparse-checkout", "set", "f.*"}, "");
+        assertFileEquals(WUG, "f.txt");
+        assertFileDoesNotExist("g.txt");
+        gitletCommand(new String[]{"sparse-checkout", "list"}, "f.*");
+        gitletCommand(new String[]{"diff"}, "");
+        gitletCommand(new String[]{"sparse-checkout", "disable"}, "");
+        assertFileEquals(NOTWUG, "g.txt");
+        gitletCommand(new String[]{"sparse-checkout", "list"}, "");
+        gitletCommand(new String[]{"sparse-checkout", "set"}, "Incorrect operands.");
+    }
+
+    @Test
+    public void test52_watchWithoutWatcher() {
+        i_setup2();
+        gitletCommand(new String[]{"watch", "now"}, "Incorrect operands.");
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"diff", "--stat"}, """
+                 f.txt | 2 +-
+                 1 file changed, 1 insertion(+), 1 deletion(-)
+                """);
+    }
+
+    @Test
+    public void test53_blameErrors() {
+        i_setup2();
+        gitletCommand(new String[]{"blame", "h.txt"}, "File does not exist in that commit.");
+        gitletCommand(new String[]{"blame"}, "Incorrect operands.");
+    }
+
+    @Test
+    public void test54_logPath() {
+        i_setup2();
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f"}, "");
+        gitletCommand(new String[]{"rm", "g.txt"}, "");
+        gitletCommand(new String[]{"commit", "Remove g"}, "");
+        String log = """
+                ===
+                ${HEADER}
+                ${DATE}
+                ${MESSAGE}
+
+                """.replace("${HEADER}", "commit [a-f0-9]+").replace("${DATE}", DATE);
+        gitletCommandP(new String[]{"log", "--", "f.txt"},
+                log.replace("${MESSAGE}", "Change f") + log.replace("${MESSAGE}", "Two files"));
+        gitletCommandP(new String[]{"log", "--", "g.txt"},
+                log.replace("${MESSAGE}", "Remove g") + log.replace("${MESSAGE}", "Two files"));
+        gitletCommand(new String[]{"log", "--", "h.txt"}, "");
+        Path graph = Path.of(".gitlet", "commit-graph");
+        assertFalse(Files.exists(graph));
+        gitletCommand(new String[]{"gc"}, "Removed 0 commits, 0 blobs and 0 chunks.");
+        assertTrue(Files.exists(graph));
+        writeFile(WUG3, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f again"}, "");
+        gitletCommandP(new String[]{"log", "--", "f.txt"},
+                log.replace("${MESSAGE}", "Change f again") + log.replace("${MESSAGE}", "Change f")
+                + log.replace("${MESSAGE}", "Two files"));
+        gitletCommandP(new String[]{"log", "--", "g.txt"},
+                log.replace("${MESSAGE}", "Remove g") + log.replace("${MESSAGE}", "Two files"));
+    }
+
+    @Test
+    public void test55_stash() {
+        i_setup2();
+        gitletCommand(new String[]{"stash"}, "No local changes to save.");
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"rm", "g.txt"}, "");
+        gitletCommand(new String[]{"stash", "push"}, "");
+        assertFileEquals(WUG, "f.txt");
+        assertFileEquals(NOTWUG, "g.txt");
+        gitletCommandP(new String[]{"stash", "list"}, "stash@\\{0\\}: WIP on main: [a-f0-9]+ Two files\n");
+        gitletCommand(new String[]{"stash", "pop"}, "");
+        assertFileEquals(WUG2, "f.txt");
+        assertFileDoesNotExist("g.txt");
+        gitletCommandP(new String[]{"status"}, """
+                === Branches ===
+                \\*main
+
+                === Staged Files ===
+
+                === Removed Files ===
+                g.txt
+
+                === Modifications Not Staged For Commit ===
+
+                === Untracked Files ===
+
+                """);
+        gitletCommand(new String[]{"stash", "pop"}, "No stash entries found.");
+        gitletCommand(new String[]{"stash", "drop", "stash@{x}"}, "Incorrect operands.");
+    }
+
+    @Test
+    public void test56_configDurability() {
+        i_setup2();
+        gitletCommand(new String[]{"config", "core.durability", "sometimes"},
+                "core.durability must be none, batch or always.");
+        gitletCommand(new String[]{"config", "core.durability"}, "");
+        gitletCommand(new String[]{"config", "core.durability", "always"}, "");
+        gitletCommand(new String[]{"config", "core.durability"}, "always");
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Durable"}, "");
+        assertFileEquals(WUG2, "f.txt");
+    }
+
+    @Test
+    public void test57_checkoutLink() throws IOException {
+        i_setup2();
+        gitletCommand(new String[]{"config", "checkout.mode", "link"}, "");
+        gitletCommand(new String[]{"branch", "other"}, "");
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f"}, "");
+        gitletCommand(new String[]{"checkout", "other"}, "");
+        assertFileEquals(WUG, "f.txt");
+        Path shared = Path.of(".gitlet", "links",
+                gitlet.Blob.name(Files.readAllBytes(Path.of("f.txt"))) + ".txt");
+        assertTrue(Files.isSameFile(Path.of("f.txt"), shared));
+        assertEquals(2, Files.getAttribute(shared, "unix:nlink"));
+        Object inode = Files.getAttribute(shared, "unix:ino");
+        gitletCommand(new String[]{"checkout", "main"}, "");
+        assertEquals(1, Files.getAttribute(shared, "unix:nlink"));
+        gitletCommand(new String[]{"checkout", "other"}, "");
+        assertEquals(inode, Files.getAttribute(Path.of("f.txt"), "unix:ino"));
+        new File("f.txt").setWritable(true);
+        byte[] edited = Files.readAllBytes(Path.of("f.txt"));
+        edited[0] ^= 1;
+        Files.write(Path.of("f.txt"), edited);
+        gitletCommand(new String[]{"checkout", "main"}, "");
+        assertFileEquals(WUG2, "f.txt");
+        gitletCommand(new String[]{"checkout", "other"}, "");
+        assertFileEquals(WUG, "f.txt");
+        assertFileEquals(NOTWUG, "g.txt");
+        assertTrue(Files.isSameFile(Path.of("f.txt"), shared));
+        gitletCommand(new String[]{"gc"}, "Removed 0 commits, 0 blobs and 0 chunks.");
+        assertTrue(Files.exists(shared));
+        assertEquals(2, new File(".gitlet", "links").list().length);
+    }
+
+    @Test
+    public void test58_pushCheckedOutBranch() throws IOException {
+        i_setup2();
+        copyDirectory(".gitlet", "remote/.gitlet");
+        gitletCommand(new String[]{"add-remote", "other", "remote/.gitlet"}, "");
+        gitletCommand(new String[]{"branch", "feature"}, "");
+        gitletCommand(new String[]{"push", "other", "main"},
+                "Cannot push to the branch checked out in the remote.");
+        gitletCommand(new String[]{"push", "other", "feature"}, "");
+        gitletCommand(new String[]{"fetch", "other", "feature"}, "");
+        gitletCommand(new String[]{"checkout", "other/feature"}, "");
+        assertFileEquals(WUG, "f.txt");
+        assertFileEquals(NOTWUG, "g.txt");
+    }
+
+    @Test
+    public void test59_tcpRemote() throws IOException, InterruptedException {
+        i_setup2();
+        copyDirectory(".gitlet", "remote/.gitlet");
+        byte[] large = new byte[3 << 20];
+        new Random(59).nextBytes(large);
+        Files.write(Path.of("remote", "h.bin"), large);
+        gitletProcess("remote", "add", "h.bin");
+        gitletProcess("remote", "commit", "Large file");
+        Process server = startGitlet("remote", "serve", "0");
+        try {
+            String port = new BufferedReader(new InputStreamReader(server.getInputStream()))
+                    .readLine().replaceAll("\\D", "");
+            gitletCommand(new String[]{"add-remote", "srv", "gitlet://127.0.0.1:" + port}, "");
+            gitletCommand(new String[]{"fetch", "srv", "main"}, "");
+            gitletCommand(new String[]{"checkout", "srv/main"}, "");
+            assertEquals(-1, Files.mismatch(Path.of("h.bin"), Path.of("remote", "h.bin")));
+            assertFileEquals(WUG, "f.txt");
+            new Random(60).nextBytes(large);
+            Files.write(Path.of("i.bin"), large);
+            gitletCommand(new String[]{"add", "i.bin"}, "");
+            gitletCommand(new String[]{"commit", "Another large file"}, "");
+            gitletCommand(new String[]{"push", "srv", "main"},
+                    "Cannot push to the branch checked out in the remote.");
+            gitletCommand(new String[]{"push", "srv", "feature"}, "");
+        } finally {
+            server.destroy();
+            server.waitFor();
+        }
+        gitletProcess("remote", "checkout", "feature");
+        assertEquals(-1, Files.mismatch(Path.of("i.bin"), Path.of("remote", "i.bin")));
+        assertEquals(-1, Files.mismatch(Path.of("h.bin"), Path.of("remote", "h.bin")));
+    }
+
+    @Test
+    public void test60_mergeSmallBudget() {
+        i_setup2();
+        gitletCommand(new String[]{"config", "merge.memoryBudget", "1"}, "");
+        gitletCommand(new String[]{"branch", "other"}, "");
+        writeFile(WUG2, "f.txt");
+        writeFile(WUG3, "h.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"add", "h.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f, add h"}, "");
+        gitletCommand(new String[]{"checkout", "other"}, "");
+        writeFile(NOTWUG, "f.txt");
+        writeFile(A, "a.txt");
+        writeFile(B, "b.txt");
+        writeFile(C, "c.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"add", "a.txt"}, "");
+        gitletCommand(new String[]{"add", "b.txt"}, "");
+        gitletCommand(new String[]{"add", "c.txt"}, "");
+        gitletCommand(new String[]{"rm", "g.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f, add a to c, remove g"}, "");
+        gitletCommand(new String[]{"checkout", "main"}, "");
+        gitletCommand(new String[]{"merge", "other"}, "Encountered a merge conflict.");
+        assertFileEquals(CONFLICT1, "f.txt");
+        assertFileDoesNotExist("g.txt");
+        assertFileEquals(WUG3, "h.txt");
+        assertFileEquals(A, "a.txt");
+        assertFileEquals(B, "b.txt");
+        assertFileEquals(C, "c.txt");
+        gitletCommandP(new String[]{"status"}, """
+                === Branches ===
+                \\*main
+                other
+
+                === Staged Files ===
+
+                === Removed Files ===
+
+                === Modifications Not Staged For Commit ===
+
+                === Untracked Files ===
+
+                """);
+    }
+
+    @Test
+    public void test61_mergePlanRename() {
+        i_setup2();
+        gitletCommand(new String[]{"branch", "other"}, "");
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"rm", "g.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f, remove g"}, "");
+        gitletCommand(new String[]{"checkout", "other"}, "");
+        writeFile(WUG, "h.txt");
+        writeFile(A, "a.txt");
+        gitletCommand(new String[]{"rm", "f.txt"}, "");
+        gitletCommand(new String[]{"add", "h.txt"}, "");
+        gitletCommand(new String[]{"add", "a.txt"}, "");
+        gitletCommand(new String[]{"commit", "Rename f to h, add a"}, "");
+        gitletCommand(new String[]{"checkout", "main"}, "");
+        gitletCommand(new String[]{"merge", "other"}, "");
+        assertFileDoesNotExist("f.txt");
+        assertFileDoesNotExist("g.txt");
+        assertFileEquals(WUG2, "h.txt");
+        assertFileEquals(A, "a.txt");
+        gitletCommandP(new String[]{"status"}, """
+                === Branches ===
+                \\*main
+                other
+
+                === Staged Files ===
+
+                === Removed Files ===
+
+                === Modifications Not Staged For Commit ===
+
+                === Untracked Files ===
+
+                """);
+    }
+
+    @Test
+    public void test62_partialClone() throws IOException, InterruptedException {
+        Files.createDirectory(Path.of("origin"));
+        writeFile(WUG, "origin/f.txt");
+        writeFile(NOTWUG, "origin/g.txt");
+        gitletProcess("origin", "init");
+        gitletProcess("origin", "add", "f.txt");
+        gitletProcess("origin", "add", "g.txt");
+        gitletProcess("origin", "commit", "Two files");
+        gitletProcess("origin", "branch", "old");
+        writeFile(WUG2, "origin/f.txt");
+        gitletProcess("origin", "add", "f.txt");
+        gitletProcess("origin", "commit", "Change f");
+        gitletCommand(new String[]{"clone", "--filter=blob:none", "origin/.gitlet"}, "");
+        assertFileEquals(WUG2, "f.txt");
+        assertFileEquals(NOTWUG, "g.txt");
+        assertEquals(2, new File(".gitlet/blobs").list().length);
+        byte[] filter = Files.readAllBytes(Path.of(".gitlet", "objects.bloom"));
+        gitletCommandP(new String[]{"blame", "f.txt"}, "[a-f0-9]{8} \\(.* 1\\) .*\n");
+        assertEquals(3, new File(".gitlet/blobs").list().length);
+        assertArrayEquals(filter, Files.readAllBytes(Path.of(".gitlet", "objects.bloom")));
+        assertTrue(Files.exists(Path.of(".gitlet", "objects.pending")));
+        gitletCommand(new String[]{"checkout", "origin/old"}, "");
+        assertFileEquals(WUG, "f.txt");
+        assertEquals(3, new File(".gitlet/blobs").list().length);
+        assertFalse(Files.exists(Path.of(".gitlet", "objects.pending")));
+        assertTrue(new gitlet.Journal().contains(new File(".gitlet", "blobs"),
+                gitlet.Blob.name(Files.readAllBytes(WUG))));
+        gitletCommand(new String[]{"checkout", "main"}, "");
+        writeFile(WUG3, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f again"}, "");
+        gitletCommand(new String[]{"checkout", "origin/old"}, "");
+        assertFileEquals(WUG, "f.txt");
+        assertEquals(4, new File(".gitlet/blobs").list().length);
+    }
+
+    @Test
+    public void test63_shallowClone() throws IOException, InterruptedException {
+        Files.createDirectory(Path.of("origin"));
+        gitletProcess("origin", "init");
+        for (Path version : new Path[]{WUG, WUG2, WUG3}) {
+            writeFile(version, "origin/f.txt");
+            gitletProcess("origin", "add", "f.txt");
+            gitletProcess("origin", "commit", version.getFileName().toString());
+        }
+        String log = """
+                ===
+                ${HEADER}
+                ${DATE}
+                ${MESSAGE}
+
+                """.replace("${HEADER}", "commit [a-f0-9]+").replace("${DATE}", DATE);
+        gitletCommand(new String[]{"clone", "--depth", "1", "origin/.gitlet"}, "");
+        assertFileEquals(WUG3, "f.txt");
+        gitletCommandP(new String[]{"log"}, log.replace("${MESSAGE}", "wug3.txt"));
+        gitletCommand(new String[]{"fetch", "--deepen=1", "origin"}, "");
+        gitletCommandP(new String[]{"log"}, log.replace("${MESSAGE}", "wug3.txt")
+                + log.replace("${MESSAGE}", "wug2.txt"));
+        gitletCommand(new String[]{"fetch", "--unshallow", "origin"}, "");
+        gitletCommandP(new String[]{"log"}, log.replace("${MESSAGE}", "wug3.txt")
+                + log.replace("${MESSAGE}", "wug2.txt") + log.replace("${MESSAGE}", "wug.txt")
+                + log.replace("${MESSAGE}", "initial commit"));
+        gitletCommand(new String[]{"fetch", "--unshallow", "origin"},
+                "This repository is not shallow.");
+    }
+
+    @Test
+    public void test64_bundle() throws IOException, InterruptedException {
+        i_setup2();
+        gitletCommand(new String[]{"branch", "old"}, "");
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Change f"}, "");
+        gitletCommand(new String[]{"bundle", "create", "full.bundle", "old"}, "");
+        gitletCommand(new String[]{"bundle", "create", "more.bundle", "main", "^old"}, "");
+        Files.createDirectory(Path.of("other"));
+        gitletProcess("other", "init");
+        gitletProcess("other", "bundle", "unbundle", "../full.bundle");
+        gitletProcess("other", "checkout", "bundle/old");
+        assertFileEquals(WUG, "other/f.txt");
+        assertFileEquals(NOTWUG, "other/g.txt");
+        gitletProcess("other", "bundle", "unbundle", "../more.bundle");
+        gitletProcess("other", "checkout", "bundle/main");
+        assertFileEquals(WUG2, "other/f.txt");
+        assertFileEquals(NOTWUG, "other/g.txt");
+    }
+
+    @Test
+    public void test65_blame() throws IOException {
+        gitletCommand(new String[]{"init"}, "");
+        Files.writeString(Path.of("f.txt"), "one\ntwo\n");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "First"}, "");
+        Files.writeString(Path.of("f.txt"), "one\nTWO\nthree\n");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        gitletCommand(new String[]{"commit", "Second"}, "");
+        String time = "\\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d [-+]\\d{4}";
+        gitletCommandP(new String[]{"blame", "f.txt"}, """
+                ([a-f0-9]{8}) \\(${TIME} 1\\) one
+                (?!\\1)([a-f0-9]{8}) \\(${TIME} 2\\) TWO
+                \\2 \\(${TIME} 3\\) three
+                """.replace("${TIME}", time));
+    }
+
+    @Test
+    public void test66_pushForgedObject() throws IOException, InterruptedException {
+        i_setup2();
+        copyDirectory(".gitlet", "remote/.gitlet");
+        String id = gitlet.Blob.name(Files.readAllBytes(Path.of("f.txt")));
+        Path stored = Path.of("remote", ".gitlet", "blobs", id + ".txt");
+        byte[] original = Files.readAllBytes(stored);
+        byte[] forged = original.clone();
+        forged[forged.length - 1] ^= 1;
+        Files.write(Path.of(".gitlet", "blobs", id + ".txt"), forged);
+        Files.write(Path.of(".gitlet", "blobs", "0".repeat(40) + ".txt"), original);
+        Process server = startGitlet("remote", "serve", "0");
+        try {
+            String port = new BufferedReader(new InputStreamReader(server.getInputStream()))
+                    .readLine().replaceAll("\\D", "");
+            for (String pushed : List.of(id, "0".repeat(40))) {
+                gitlet.TcpRemote remote = new gitlet.TcpRemote("gitlet://127.0.0.1:" + port);
+                try {
+                    remote.upload(new File(".gitlet", "blobs"), List.of(pushed));
+                    fail("a forged object was accepted");
+                } catch (IllegalArgumentException excp) {
+                    assertTrue(excp.getMessage().contains("does not match its name"));
+                } finally {
+                    remote.close();
+                }
+            }
+        } finally {
+            server.destroy();
+            server.waitFor();
+        }
+        assertArrayEquals(original, Files.readAllBytes(stored));
+        assertFalse(Files.exists(Path.of("remote", ".gitlet", "blobs", "0".repeat(40) + ".txt")));
+    }
+
+    @Test
+    public void test67_traceMerge() throws IOException, InterruptedException {
+        gitletCommand(new String[]{"init"}, "");
+        int files = 40;
+        for (String side : new String[]{"base", "main", "other"}) {
+            if (side.equals("other")) {
+                gitletCommand(new String[]{"checkout", "other"}, "");
+            }
+            for (int i = 0; i < files; i++) {
+                Files.writeString(Path.of("f" + i + ".txt"), side + " " + i + "\n");
+                gitletCommand(new String[]{"add", "f" + i + ".txt"}, "");
+            }
+            gitletCommand(new String[]{"commit", side}, "");
+            if (side.equals("base")) {
+                gitletCommand(new String[]{"branch", "other"}, "");
+            }
+        }
+        gitletCommand(new String[]{"checkout", "main"}, "");
+        Process merge = startGitlet(".", "--trace", "merge", "other");
+        String output = new String(merge.getInputStream().readAllBytes());
+        assertEquals(0, merge.waitFor());
+        Matcher reads = Pattern.compile("\"reads\": \\{.*?\"blobs\": \\{\"objects\": (\\d+)")
+                .matcher(output);
+        assertTrue(output, reads.find());
+        // Each file is compared three ways and then both sides are read for the conflict
+        assertEquals(8 * files, Integer.parseInt(reads.group(1)));
+    }
+
+    @Test
+    public void test68_partialCloneMergeRename() throws IOException, InterruptedException {
+        Files.createDirectory(Path.of("origin"));
+        writeFile(WUG, "origin/f.txt");
+        writeFile(NOTWUG, "origin/g.txt");
+        gitletProcess("origin", "init");
+        gitletProcess("origin", "add", "f.txt");
+        gitletProcess("origin", "add", "g.txt");
+        gitletProcess("origin", "commit", "Two files");
+        gitletProcess("origin", "branch", "moved");
+        writeFile(WUG2, "origin/f.txt");
+        gitletProcess("origin", "add", "f.txt");
+        gitletProcess("origin", "commit", "Change f");
+        gitletProcess("origin", "checkout", "moved");
+        writeFile(WUG, "origin/h.txt");
+        gitletProcess("origin", "rm", "f.txt");
+        gitletProcess("origin", "add", "h.txt");
+        gitletProcess("origin", "commit", "Move f to h");
+        gitletProcess("origin", "checkout", "main");
+        gitletCommand(new String[]{"clone", "--filter=blob:none", "origin/.gitlet"}, "");
+        assertEquals(2, new File(".gitlet/blobs").list().length);
+        gitletCommand(new String[]{"merge", "origin/moved"}, "");
+        assertFileEquals(WUG2, "h.txt");
+        assertFalse(new File("f.txt").exists());
+        assertEquals(3, new File(".gitlet/blobs").list().length);
+    }
+
+    @Test
+    public void test69_journalRecovery() throws IOException {
+        i_setup2();
+        writeFile(WUG2, "f.txt");
+        gitletCommand(new String[]{"add", "f.txt"}, "");
+        Path journal = Path.of(".gitlet", "journal");
+        assertTrue(Files.exists(journal));
+        Path blob = Path.of(".gitlet", "blobs",
+                gitlet.Blob.name(Files.readAllBytes(WUG2)) + ".txt");
+        long added = Files.size(journal);
+        byte[] saved = Files.readAllBytes(blob);
+        Files.write(blob, new byte[saved.length]);
+        gitletCommand(new String[]{"branch", "other"}, "");
+        assertArrayEquals(saved, Files.readAllBytes(blob));
+        // The journal now only holds the records of the last command
+        assertTrue(Files.size(journal) < added);
+    }
+
+    /**
+     * Starts gitlet in a process of its own.
+     *
+     * @param dir  -- directory of the current testing directory to run in
+     * @param args -- arguments to gitlet
+     */
+    public static Process startGitlet(String dir, String... args) throws IOException {
+        OG_OUT.println("Start gitlet " + String.join(" ", args) + " in " + dir);
+        List<String> command = new ArrayList<>(List.of("java", "-cp",
+                System.getProperty("java.class.path"), "gitlet.Main"));
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).directory(new File(dir)).redirectErrorStream(true)
+                .start();
+    }
+
+    /**
+     * Runs gitlet in a process of its own and waits for it, as gitlet can
+     * only run in-process in the current testing directory. The command
+     * must succeed without printing anything.
+     *
+     * @param dir  -- directory of the current testing directory to run in
+     * @param args -- arguments to gitlet
+     */
+    public static void gitletProcess(String dir, String... args)
+            throws IOException, InterruptedException {
+        Process process = startGitlet(dir, args);
+        String output = new String(process.getInputStream().readAllBytes());
+        OG_OUT.print(output);
+        assertEquals(0, process.waitFor());
+        assertEquals("", output);
+    }
+
+    /**
+     * Copies a directory of the current testing directory, with everything
+     * in it.
+     *
+     * @param src -- directory to copy
+     * @param dst -- directory to copy it to; must not exist
+     */
+    public static void copyDirectory(String src, String dst) throws IOException {
+        OG_OUT.println("Copy directory " + src + " to " + dst);
+        try (var paths = Files.walk(Path.of(src))) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path target = Path.of(dst).resolve(Path.of(src).relativize(path));
+                Files.createDirectories(target.getParent());
+                if (!Files.isDirectory(path)) {
+                    Files.copy(path, target);
+                }
+            }
+        }
+    }
 }
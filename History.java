@@ -0,0 +1,140 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeSet;
+import jdk.jfr.Event;
+
+/** Represents the commit graph of a repository, as far as it goes. A shallow
+ *  clone only has the most recent Commits of its history; the oldest Commits
+ *  it has are listed in the file shallow, and their parents are treated as if
+ *  they did not exist. Every walk over the history goes through this class so
+ *  that it stops at that boundary.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class History {
+
+    /** The file listing the Commits whose parents are not in the repository. */
+    static final File SHALLOW_FILE = Utils.join(Repository.GITLET_DIR, "shallow");
+
+    /** The commits folder of the repository. */
+    private File commits;
+    /** The file listing the boundary of the repository. */
+    private File shallowFile;
+    /** The Commits whose parents are not in the repository. */
+    private TreeSet<String> boundary;
+
+    /** Reads the history of this repository. */
+    public History() {
+        this(Repository.GITLET_DIR);
+    }
+
+    /** Reads the history of the repository whose .gitlet directory is DIR. */
+    public History(File dir) {
+        commits = Utils.join(dir, Commit.COMMIT_FOLDER.getName());
+        shallowFile = Utils.join(dir, SHALLOW_FILE.getName());
+        boundary = new TreeSet<>();
+        if (shallowFile.isFile()) {
+            for (String id : Utils.readContentsAsString(shallowFile).split("\n")) {
+                if (!id.isEmpty()) {
+                    boundary.add(id);
+                }
+            }
+        }
+    }
+
+    /** Returns the Commit named ID. */
+    public Commit read(String id) {
+        return Commit.readCommit(commits, id);
+    }
+
+    /** Returns the parents of C that are in the repository. */
+    public List<String> parents(Commit c) {
+        ArrayList<String> parents = new ArrayList<>(2);
+        if (boundary.contains(c.getName())) {
+            return parents;
+        }
+        if (c.getPrevCommit() != null) {
+            parents.add(c.getPrevCommit());
+        }
+        if (c.getPrevCommit2() != null) {
+            parents.add(c.getPrevCommit2());
+        }
+        return parents;
+    }
+
+    /** Returns the names of START and of all its ancestors, nearest first. */
+    public LinkedHashSet<String> ancestors(String start) {
+        Event event = FlightEvents.begin(FlightEvents.ANCESTRY_WALK);
+        LinkedHashSet<String> seen = new LinkedHashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        seen.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            for (String parent : parents(read(queue.poll()))) {
+                if (seen.add(parent)) {
+                    queue.add(parent);
+                }
+            }
+        }
+        if (event != null) {
+            FlightEvents.commit(event, "ancestors", start, seen.size());
+        }
+        return seen;
+    }
+
+    /** Returns true if the repository is a shallow clone. */
+    public boolean isShallow() {
+        return !boundary.isEmpty();
+    }
+
+    /** Returns the Commits whose parents are not in the repository. */
+    public List<String> boundary() {
+        return new ArrayList<>(boundary);
+    }
+
+    /** Returns the parents of the Commits on the boundary, which a deepening
+     *  fetch asks for. */
+    public List<String> beyondBoundary() {
+        ArrayList<String> parents = new ArrayList<>();
+        for (String id : boundary) {
+            Commit c = read(id);
+            for (String parent : Arrays.asList(c.getPrevCommit(), c.getPrevCommit2())) {
+                if (parent != null && !Utils.join(commits, parent + ".txt").isFile()) {
+                    parents.add(parent);
+                }
+            }
+        }
+        return parents;
+    }
+
+    /** Updates the boundary after the Commits FETCHED have been added to the
+     *  repository: Commits whose parents are all present now leave it, and
+     *  fetched Commits with a missing parent join it. The new boundary is
+     *  saved through JOURNAL if it changed. */
+    public void update(Collection<String> fetched, Journal journal) {
+        TreeSet<String> old = new TreeSet<>(boundary);
+        ArrayList<String> candidates = new ArrayList<>(boundary);
+        candidates.addAll(fetched);
+        boundary.clear();
+        for (String id : candidates) {
+            Commit c = read(id);
+            for (String parent : Arrays.asList(c.getPrevCommit(), c.getPrevCommit2())) {
+                if (parent != null && !Utils.join(commits, parent + ".txt").isFile()) {
+                    boundary.add(id);
+                }
+            }
+        }
+        if (!boundary.equals(old)) {
+            journal.writeRefContents(shallowFile, String.join("\n", boundary)
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import jdk.jfr.Event;
+
+/** Represents the write-ahead journal of one gitlet command. Objects (blobs
+ *  and commits) are written as soon as they are made, while references
+ *  (staging.txt) are held back until commit(), which makes the command's
+ *  writes durable according to the core.durability setting. The object
+ *  filter is only replaced by commands holding an exclusive lock; those
+ *  holding a shared lock leave the names of the objects they stored in a
+ *  pending file instead. The settings are:
+ *    none   - nothing is synced; references are still replaced atomically.
+ *    batch  - every object and reference of the command is appended to
+ *             .gitlet/journal, which is synced once, and only then are the
+ *             references switched. The next command holding an exclusive
+ *             lock replays the journal to restore objects and references
+ *             lost in a crash, syncs them and deletes the journal.
+ *    always - every object and reference is synced on its own.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Journal {
+
+    /** The file that the journal is kept in. */
+    static final File JOURNAL_FILE = Utils.join(Repository.GITLET_DIR, "journal");
+    /** The file that the Bloom filter over all object names is kept in. */
+    static final File FILTER_FILE = Utils.join(Repository.GITLET_DIR, "objects.bloom");
+    /** The file that commands holding a shared lock append the names of the
+     *  objects they stored to, one per line, for the next command holding an
+     *  exclusive lock to add to the object filter. */
+    static final File PENDING_FILE = Utils.join(Repository.GITLET_DIR, "objects.pending");
+    /** Default false-positive rate of the object filter. */
+    static final double FP_RATE = 0.01;
+    /** Smallest number of names the object filter is sized for. */
+    static final long MIN_FILTER_CAPACITY = 1024;
+    /** Durability setting under which nothing is synced. */
+    static final String NONE = "none";
+    /** Durability setting under which each command is synced once. */
+    static final String BATCH = "batch";
+    /** Durability setting under which each write is synced. */
+    static final String ALWAYS = "always";
+    /** Kind of a journal record holding an object. */
+    static final byte OBJECT = 1;
+    /** Kind of a journal record holding a reference. */
+    static final byte REF = 2;
+    /** Kind of a journal record ending the records of one command. */
+    static final byte COMMIT = 3;
+    /** Bytes of objects that one command journals at most. */
+    static final long MAX_JOURNALED_BYTES = 4L << 20;
+    /** Size of objects past which they are not journaled but synced when
+     *  the command commits. Objects are also left out of the journal once a
+     *  command has journaled MAX_JOURNALED_BYTES bytes, so that large imports are
+     *  not written twice. */
+    static final int MAX_JOURNALED_OBJECT = 1 << 20;
+
+    /** The .gitlet directory whose writes this journal covers. */
+    private File dir;
+    /** The journal file of DIR. */
+    private File journalFile;
+    /** The object filter file of DIR. */
+    private File filterFile;
+    /** The file of DIR holding the names of objects not yet in the filter. */
+    private File pendingFile;
+    /** True if the command only holds a shared lock, so that it must not
+     *  replace the object filter, which another such command may be saving. */
+    private boolean shared;
+    /** True if names from PENDINGFILE were added to the loaded filter. */
+    private boolean pendingLoaded;
+    /** The durability setting of this journal. */
+    private String mode;
+    /** The journal file that the records of this command are appended to. */
+    private FileOutputStream recordsFile;
+    /** Records of this command that have not been committed yet. */
+    private DataOutputStream records;
+    /** Bytes of objects appended to the journal by this command. */
+    private long journaledBytes;
+    /** References waiting to be switched (key = file, value = contents). */
+    private LinkedHashMap<File, byte[]> refs;
+    /** The Bloom filter over all object names, once it has been loaded. */
+    private BloomFilter objects;
+    /** Names of the objects written by this command. */
+    private ArrayList<String> newObjects;
+    /** Objects written by this command outside the journal, which are
+     *  synced all at once when it commits. */
+    private ArrayList<File> unsynced;
+    /** True if objects that the journal holds no record of were written,
+     *  so that the object filter must be synced to remember them. */
+    private boolean unjournaled;
+
+    /** Opens the journal of a command with the durability setting from the
+     *  config, or with BATCH if the config holds no known setting, so that a
+     *  bad setting can still be fixed with git config. */
+    public Journal() {
+        this(false);
+    }
+
+    /** Opens the journal of a command like Journal() does, for a command
+     *  that only holds a shared lock if SHARED. */
+    public Journal(boolean shared) {
+        this(durability(new Config().get("core.durability", BATCH)));
+        this.shared = shared;
+    }
+
+    /** Opens the journal of a command with the durability setting MODE. */
+    public Journal(String mode) {
+        this(Repository.GITLET_DIR, mode);
+    }
+
+    /** Opens the journal of a command on the repository whose .gitlet
+     *  directory is DIR, such as a remote, with the durability setting MODE. */
+    public Journal(File dir, String mode) {
+        if (!isDurability(mode)) {
+            throw Utils.error("Unknown durability setting: %s", mode);
+        }
+        this.dir = dir;
+        journalFile = Utils.join(dir, JOURNAL_FILE.getName());
+        filterFile = Utils.join(dir, FILTER_FILE.getName());
+        pendingFile = Utils.join(dir, PENDING_FILE.getName());
+        this.mode = mode;
+        refs = new LinkedHashMap<>();
+        newObjects = new ArrayList<>();
+        unsynced = new ArrayList<>();
+    }
+
+    /** Returns true if MODE is a durability setting. */
+    static boolean isDurability(String mode) {
+        return mode.equals(NONE) || mode.equals(BATCH) || mode.equals(ALWAYS);
+    }
+
+    /** Returns MODE if it is a durability setting, and BATCH otherwise. */
+    private static String durability(String mode) {
+        return isDurability(mode) ? mode : BATCH;
+    }
+
+    /** Writes the serialized OBJ to the object file FILE. */
+    public void writeObject(File file, Serializable obj) {
+        writeContents(file, Utils.serialize(obj));
+    }
+
+    /** Writes CONTENTS to the object file FILE, which is never changed afterwards. */
+    public void writeContents(File file, byte[] contents) {
+        String id = file.getName().substring(0, file.getName().lastIndexOf('.'));
+        Trace.write(file.getParentFile().getName(), contents.length);
+        Event event = FlightEvents.begin(FlightEvents.OBJECT_WRITE);
+        newObjects.add(id);
+        if (objects != null) {
+            objects.add(id);
+        }
+        boolean synced = mode.equals(ALWAYS);
+        if (synced) {
+            replace(file, contents, true);
+            unjournaled = true;
+        } else if (mode.equals(BATCH) && (contents.length > MAX_JOURNALED_OBJECT
+                || journaledBytes + contents.length > MAX_JOURNALED_BYTES)) {
+            replace(file, contents, false);
+            unsynced.add(file);
+            unjournaled = true;
+        } else {
+            Utils.writeContents(file, contents);
+            if (mode.equals(BATCH)) {
+                record(OBJECT, file, contents);
+                journaledBytes += contents.length;
+            }
+        }
+        if (event != null) {
+            FlightEvents.commit(event, file.getParentFile().getName(), id,
+                    (long) contents.length, synced);
+        }
+    }
+
+    /** Returns true if the object named ID exists in FOLDER. Objects that the
+     *  Bloom filter has never seen are reported missing without touching the
+     *  disk. */
+    public boolean contains(File folder, String id) {
+        if (!objectFilter().mightContain(id)) {
+            Trace.cache("objects.bloom", true);
+            return false;
+        }
+        Trace.cache("objects.bloom", false);
+        return Utils.join(folder, id + ".txt").isFile();
+    }
+
+    /** Returns the object filter, loading it or building it from the object
+     *  folders if it is missing or has outgrown its size. The names that
+     *  commands holding a shared lock left in the pending file are added. */
+    private BloomFilter objectFilter() {
+        if (objects == null) {
+            objects = BloomFilter.read(filterFile);
+            if (objects == null || objects.full()) {
+                objects = buildObjectFilter();
+            } else {
+                for (String id : newObjects) {
+                    objects.add(id);
+                }
+            }
+            if (pendingFile.isFile()) {
+                for (String id : Utils.readContentsAsString(pendingFile).split("\n")) {
+                    if (id.length() == Utils.UID_LENGTH) {
+                        objects.add(id);
+                    }
+                }
+                pendingLoaded = true;
+            }
+        }
+        return objects;
+    }
+
+    /** Returns a new object filter holding every object in the object folders,
+     *  sized with room to grow. Only the folders are listed; no object is read. */
+    private BloomFilter buildObjectFilter() {
+        ArrayList<String> names = new ArrayList<>();
+        for (File folder : new File[] {Commit.COMMIT_FOLDER, Blob.BLOB_FOLDER, Blob.CHUNK_FOLDER}) {
+            String[] files = Utils.join(dir, folder.getName()).list();
+            if (files != null) {
+                names.addAll(Arrays.asList(files));
+            }
+        }
+        double fpRate = FP_RATE;
+        try {
+            fpRate = Double.parseDouble(new Config().get("core.bloomFpRate", "" + FP_RATE));
+        } catch (NumberFormatException excp) {
+            fpRate = FP_RATE;
+        }
+        BloomFilter filter = new BloomFilter(Math.max(MIN_FILTER_CAPACITY, 2L * names.size()),
+                fpRate);
+        for (String name : names) {
+            if (name.endsWith(".txt")) {
+                filter.add(name.substring(0, name.length() - 4));
+            }
+        }
+        return filter;
+    }
+
+    /** Throws away the saved object filter, so that the next command that
+     *  needs it rebuilds it. Used after objects are deleted. */
+    public void dropObjectFilter() {
+        objects = null;
+        filterFile.delete();
+        pendingFile.delete();
+    }
+
+    /** Notes that the objects named IDS were written and synced directly,
+     *  without going through this journal, so that the object filter
+     *  learns about them. May be called from parallel work. */
+    public synchronized void addObjects(Collection<String> ids) {
+        newObjects.addAll(ids);
+        unjournaled |= !ids.isEmpty();
+        if (objects != null) {
+            for (String id : ids) {
+                objects.add(id);
+            }
+        }
+    }
+
+    /** Saves the object filter with the objects written by this command,
+     *  syncing it if SYNC, and then deletes the pending file, whose names the
+     *  filter now holds. A filter saved unsynced may be lost in a crash,
+     *  which is safe as long as the journal still holds the objects, as
+     *  recovery adds them back. */
+    private void saveObjectFilter(boolean sync) {
+        if (objectFilter().full()) {
+            objects = buildObjectFilter();
+        }
+        replace(filterFile, objects.toBytes(), sync);
+        pendingFile.delete();
+        newObjects.clear();
+        unjournaled = false;
+        pendingLoaded = false;
+    }
+
+    /** Appends the names of the objects written by this command, which
+     *  only holds a shared lock, to the pending file, which concurrent
+     *  commands may append to as well. Each command's names are appended in
+     *  one write, and a torn line is ignored by objectFilter(). */
+    private void savePending() {
+        StringBuilder names = new StringBuilder();
+        for (String id : newObjects) {
+            names.append(id).append('\n');
+        }
+        try (FileOutputStream out = new FileOutputStream(pendingFile, true)) {
+            out.write(names.toString().getBytes(StandardCharsets.UTF_8));
+            if (mode.equals(ALWAYS)) {
+                out.getChannel().force(false);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        newObjects.clear();
+    }
+
+    /** Replaces the reference file FILE with the serialized OBJ once the
+     *  journal is committed. */
+    public void writeRef(File file, Serializable obj) {
+        writeRefContents(file, Utils.serialize(obj));
+    }
+
+    /** Replaces the reference file FILE with CONTENTS once the journal is
+     *  committed. */
+    public void writeRefContents(File file, byte[] contents) {
+        Trace.write("refs", contents.length);
+        refs.put(file, contents);
+    }
+
+    /** Makes the writes of this command durable and then switches the references. */
+    public void commit() {
+        long start = Trace.start();
+        try {
+            commitWrites();
+        } finally {
+            Trace.time("Journal.commit", start);
+        }
+    }
+
+    /** Does the work of commit(). */
+    private void commitWrites() {
+        unsynced.parallelStream().forEach(Journal::sync);
+        unsynced.clear();
+        if (shared && !newObjects.isEmpty()) {
+            savePending();
+        } else if (!shared && (!newObjects.isEmpty() || pendingLoaded)) {
+            saveObjectFilter(mode.equals(ALWAYS) || mode.equals(BATCH) && unjournaled);
+        }
+        if (refs.isEmpty() && records == null) {
+            return;
+        }
+        try {
+            if (mode.equals(BATCH)) {
+                for (Map.Entry<File, byte[]> ref : refs.entrySet()) {
+                    record(REF, ref.getKey(), ref.getValue());
+                }
+                records.writeByte(COMMIT);
+                records.flush();
+                recordsFile.getChannel().force(false);
+                records.close();
+                records = null;
+            }
+            for (Map.Entry<File, byte[]> ref : refs.entrySet()) {
+                Event event = FlightEvents.begin(FlightEvents.INDEX_SAVE);
+                replace(ref.getKey(), ref.getValue(), mode.equals(ALWAYS));
+                if (event != null) {
+                    FlightEvents.commit(event, relative(ref.getKey()),
+                            (long) ref.getValue().length, mode.equals(ALWAYS));
+                }
+            }
+            refs.clear();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Closes the journal without committing it. Uncommitted records are
+     *  ignored by the next command. */
+    public void close() {
+        if (records != null) {
+            try {
+                records.close();
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp);
+            }
+            records = null;
+        }
+        refs.clear();
+        unsynced.clear();
+    }
+
+    /** Appends a record of KIND for FILE with CONTENTS to the journal. */
+    private void record(byte kind, File file, byte[] contents) {
+        try {
+            if (records == null) {
+                recordsFile = new FileOutputStream(journalFile, true);
+                records = new DataOutputStream(new BufferedOutputStream(recordsFile, 1 << 16));
+            }
+            records.writeByte(kind);
+            records.writeUTF(relative(file));
+            records.writeInt(contents.length);
+            records.write(contents);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Atomically replaces FILE with CONTENTS, syncing it first and the
+     *  directory holding it afterwards if SYNC. */
+    static void replace(File file, byte[] contents, boolean sync) {
+        File temp = tempFile(file);
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(contents);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            if (sync) {
+                out.force(false);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp);
+        }
+        if (sync) {
+            syncDirectory(file.getAbsoluteFile().getParentFile());
+        }
+    }
+
+    /** Returns a new temporary file that FILE is written to before being
+     *  renamed into place. It is kept directly in the .gitlet directory that
+     *  holds FILE so that it never shows up among the objects, and its name
+     *  is unique, as commands holding a shared lock may write the same FILE
+     *  at once. */
+    static File tempFile(File file) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        while (dir != null && !dir.getName().equals(".gitlet")) {
+            dir = dir.getParentFile();
+        }
+        if (dir == null) {
+            dir = file.getAbsoluteFile().getParentFile();
+        }
+        return Utils.join(dir, file.getName() + "-" + UUID.randomUUID() + ".tmp");
+    }
+
+    /** Restores the objects and references of every committed command in the
+     *  journal whose writes did not reach the disk, and then checkpoints the
+     *  journal, so that the next command has nothing to replay and no later
+     *  recovery can bring back an object deleted after this. The uncommitted
+     *  tail is dropped with it. Must only be called while holding an
+     *  exclusive RepositoryLock. */
+    public void recover() {
+        if (!journalFile.isFile()) {
+            return;
+        }
+        byte[] journal = Utils.readContents(journalFile);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(journal));
+        ArrayList<String> pending = new ArrayList<>();
+        ArrayList<byte[]> pendingContents = new ArrayList<>();
+        ArrayList<Byte> pendingKinds = new ArrayList<>();
+        LinkedHashMap<String, byte[]> lastRefs = new LinkedHashMap<>();
+        ArrayList<String> objects = new ArrayList<>();
+        try {
+            while (true) {
+                byte kind = in.readByte();
+                if (kind == COMMIT) {
+                    for (int i = 0; i < pending.size(); i++) {
+                        if (pendingKinds.get(i) == REF) {
+                            lastRefs.put(pending.get(i), pendingContents.get(i));
+                        } else {
+                            objects.add(pending.get(i));
+                            addRecovered(pending.get(i));
+                            restoreObject(pending.get(i), pendingContents.get(i));
+                        }
+                    }
+                    pending.clear();
+                    pendingContents.clear();
+                    pendingKinds.clear();
+                    continue;
+                }
+                String path = in.readUTF();
+                byte[] contents = new byte[in.readInt()];
+                in.readFully(contents);
+                pending.add(path);
+                pendingContents.add(contents);
+                pendingKinds.add(kind);
+            }
+        } catch (EOFException excp) {
+            //The end of the journal, possibly in the middle of a torn record
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        for (Map.Entry<String, byte[]> ref : lastRefs.entrySet()) {
+            File file = Utils.join(dir, ref.getKey());
+            if (!file.isFile() || !Arrays.equals(Utils.readContents(file), ref.getValue())) {
+                replace(file, ref.getValue(), true);
+            }
+        }
+        checkpoint(objects, lastRefs.keySet());
+    }
+
+    /** Adds the object at PATH, replayed from the journal, to the object
+     *  filter, as the filter saved by the command that wrote it may have
+     *  been lost. */
+    private void addRecovered(String path) {
+        String name = new File(path).getName();
+        String id = name.substring(0, name.length() - ".txt".length());
+        newObjects.add(id);
+        if (objects != null) {
+            objects.add(id);
+        }
+    }
+
+    /** Rewrites the object at PATH from the journal if it is missing or
+     *  torn, which it may be even at its full length. */
+    private void restoreObject(String path, byte[] contents) {
+        File file = Utils.join(dir, path);
+        if (!file.isFile() || file.length() != contents.length
+                || !Arrays.equals(Utils.readContents(file), contents)) {
+            replace(file, contents, false);
+        }
+    }
+
+    /** Syncs every file the journal covers, the directories holding them,
+     *  and the object filter that names its objects and those in the
+     *  pending file, and then deletes the journal. */
+    private void checkpoint(ArrayList<String> objects, Iterable<String> refPaths) {
+        if (!objects.isEmpty() || pendingFile.isFile()) {
+            saveObjectFilter(true);
+        }
+        ArrayList<String> paths = new ArrayList<>(objects);
+        for (String ref : refPaths) {
+            paths.add(ref);
+        }
+        paths.parallelStream()
+                .map(path -> Utils.join(dir, path))
+                .filter(File::isFile)
+                .forEach(Journal::sync);
+        paths.stream()
+                .map(path -> Utils.join(dir, path).getParentFile())
+                .distinct()
+                .forEach(Journal::syncDirectory);
+        journalFile.delete();
+        syncDirectory(dir);
+    }
+
+    /** Syncs the contents of FILE to the disk. */
+    private static void sync(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(false);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Syncs the entries of the directory DIR, such as a file renamed into
+     *  it, to the disk. Platforms that cannot sync a directory are left to
+     *  their own. */
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(false);
+        } catch (IOException excp) {
+            //The platform cannot open a directory as a file
+        }
+    }
+
+    /** Returns the name of FILE relative to the .gitlet directory. */
+    private String relative(File file) {
+        return dir.toPath().relativize(file.toPath()).toString();
+    }
+}
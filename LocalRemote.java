@@ -0,0 +1,131 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+
+/** Represents a remote that is another .gitlet directory on a local path.
+ *  The remote is locked like any repository while it is used: shared for a
+ *  fetch, exclusive for a push. Objects are copied file by file in parallel,
+ *  each synced before it is renamed into place, and a pushed branch goes
+ *  through the remote's own journal. The branch checked out in the remote
+ *  cannot be pushed to.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class LocalRemote extends Remote {
+
+    /** The .gitlet directory of the remote. */
+    private File dir;
+    /** The lock held on the remote. */
+    private RepositoryLock lock;
+    /** The journal of the remote, or null unless opened for pushing. */
+    private Journal journal;
+
+    /** Opens the remote whose .gitlet directory is DIR, for pushing if WRITE. */
+    public LocalRemote(File dir, boolean write) {
+        this.dir = dir.getAbsoluteFile();
+        if (!this.dir.isDirectory() || !Utils.join(this.dir, "staging.txt").isFile()) {
+            System.out.println("Remote directory not found.");
+            System.exit(0);
+        }
+        lock = new RepositoryLock(Utils.join(this.dir, RepositoryLock.LOCK_FILE.getName()), !write);
+        if (write) {
+            journal = new Journal(this.dir, Journal.BATCH);
+            journal.recover();
+        }
+    }
+
+    @Override
+    public HashMap<String, String> branches() {
+        return Utils.readObject(Utils.join(dir, "staging.txt"), Staging.class).getBranches();
+    }
+
+    @Override
+    public List<String> has(File folder, List<String> ids) {
+        return existing(dir, folder, ids);
+    }
+
+    @Override
+    public List<String> missingCommits(List<String> wants, List<String> common, int depth) {
+        return missingCommits(dir, wants, common, depth);
+    }
+
+    @Override
+    public List<String> blobsOf(List<String> commits) {
+        return blobsOf(dir, commits);
+    }
+
+    @Override
+    public List<String> chunksOf(List<String> blobs) {
+        return chunksOf(dir, blobs);
+    }
+
+    @Override
+    public void download(File folder, List<String> ids) {
+        copy(Utils.join(dir, folder.getName()), folder, ids);
+    }
+
+    @Override
+    public void upload(File folder, List<String> ids) {
+        copy(folder, Utils.join(dir, folder.getName()), ids);
+        journal.addObjects(ids);
+    }
+
+    @Override
+    public String checkedOut() {
+        return Utils.readObject(Utils.join(dir, "staging.txt"), Staging.class).getCurrentBranch();
+    }
+
+    @Override
+    public boolean updateBranch(String branch, String expected, String head) {
+        File stagingFile = Utils.join(dir, "staging.txt");
+        Staging remote = Utils.readObject(stagingFile, Staging.class);
+        String current = remote.getBranches().get(branch);
+        if (current == null ? expected != null : !current.equals(expected)) {
+            return false;
+        }
+        remote.moveBranch(branch, head);
+        journal.writeRef(stagingFile, remote);
+        journal.commit();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+        lock.release();
+    }
+
+    /** Copies the objects IDS from the folder FROM to the folder TO in
+     *  parallel. Each copy is synced and then renamed into place, so an
+     *  object is never seen half written. */
+    private static void copy(File from, File to, List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        to.mkdirs();
+        ids.parallelStream().forEach(id -> {
+            File target = Utils.join(to, id + ".txt");
+            File temp = Journal.tempFile(target);
+            try {
+                Files.copy(Utils.join(from, id + ".txt").toPath(), temp.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                    channel.force(false);
+                }
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp);
+            }
+        });
+    }
+}
@@ -1,5 +1,7 @@
 package gitlet;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -13,18 +15,93 @@ public class Main {
      *  <COMMAND> <OPERAND1> <OPERAND2> ... 
      */
     public static void main(String[] args) {
+        boolean traced = Trace.requested(args);
+        if (traced || FlightEvents.recording()) {
+            String[] command = args.length > 0 && args[0].equals(Trace.FLAG)
+                    ? Arrays.copyOfRange(args, 1, args.length) : args;
+            Trace trace = null;
+            if (traced) {
+                trace = new Trace(String.join(" ", command));
+                trace.printOnExit();
+            }
+            FlightEvents events = FlightEvents.recording() ? new FlightEvents() : null;
+            CommandThread.run(trace, events, () -> execute(command));
+        } else {
+            execute(args);
+        }
+    }
+
+    /** Runs the command in ARGS on the repository in the current directory. */
+    public static void execute(String[] args) {
         if (args.length == 0) {
             System.out.println("Please enter a command.");
             System.exit(0);
         }
-        Staging s = null;
-        if (!args[0].equals("init")) {
-            if (!Arrays.asList(Repository.CWD.list()).contains(".gitlet")) {
-                System.out.println("Not in an initialized Gitlet directory.");
-                System.exit(0);
+        if (args[0].equals("init")) {
+            run(null, args);
+            return;
+        }
+        if (args[0].equals("clone")) {
+            cloneSetup(args);
+        }
+        if (!Arrays.asList(Repository.CWD.list()).contains(".gitlet")) {
+            System.out.println("Not in an initialized Gitlet directory.");
+            System.exit(0);
+        }
+        if (args[0].equals("serve")) {
+            serve(args);
+            return;
+        }
+        if (args[0].equals("watch")) {
+            operandsChecker(0, args.length);
+            new Watcher().watch();
+            return;
+        }
+        boolean readOnly = readOnly(args[0]);
+        long start = Trace.start();
+        RepositoryLock lock = new RepositoryLock(readOnly);
+        Trace.time("lock", start);
+        Journal journal = null;
+        try {
+            journal = new Journal(readOnly);
+            if (!readOnly) {
+                start = Trace.start();
+                journal.recover();
+                Trace.time("Journal.recover", start);
             }
-            s = Staging.readStaging();
+            start = Trace.start();
+            Staging s = Staging.readStaging(journal);
+            Trace.time("Staging.readStaging", start);
+            start = Trace.start();
+            run(s, args);
+            Trace.time("run " + args[0], start);
+            journal.commit();
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+            lock.release();
+        }
+    }
+
+    /** Returns true if COMMAND never writes to the repository, so that it
+     *  can share the repository with other commands that only read. */
+    public static boolean readOnly(String command) {
+        switch (command) {
+            case "log":
+            case "global-log":
+            case "find":
+            case "status":
+            case "diff":
+            case "blame":
+                return true;
+            default:
+                return false;
         }
+    }
+
+    /** Runs the command in ARGS against the staging area S. */
+    public static void run(Staging s, String[] args) {
         switch (args[0]) {
             case "init":
                 new Repository();
@@ -42,7 +119,11 @@ public class Main {
                 s.removeStaging(args[1]);
                 break;
             case "log":
-                s.log();
+                if (args.length == 3 && args[1].equals("--")) {
+                    s.log(args[2]);
+                } else {
+                    s.log();
+                }
                 break;
             case "global-log":
                 s.globalLog();
@@ -86,12 +167,283 @@ public class Main {
                 operandsChecker(1, args.length);
                 s.merge(args[1]);
                 break;
+            case "diff":
+                diff(s, args);
+                break;
+            case "blame":
+                operandsChecker(1, args.length);
+                s.blame(args[1]);
+                break;
+            case "gc":
+                gc(s, args);
+                break;
+            case "clone":
+                s.cloneRemote("origin", cloneDepth(args));
+                break;
+            case "add-remote":
+                operandsChecker(2, args.length);
+                Remote.add(args[1], args[2]);
+                break;
+            case "rm-remote":
+                operandsChecker(1, args.length);
+                Remote.remove(args[1]);
+                break;
+            case "fetch":
+                fetch(s, args);
+                break;
+            case "push":
+                operandsChecker(2, args.length);
+                s.push(args[1], args[2]);
+                break;
+            case "pull":
+                operandsChecker(2, args.length);
+                s.pull(args[1], args[2]);
+                break;
+            case "bundle":
+                bundle(s, args);
+                break;
+            case "sparse-checkout":
+                sparseCheckout(s, args);
+                break;
+            case "stash":
+                stash(s, args);
+                break;
+            case "config":
+                if (args.length == 2) {
+                    new Config().config(args[1], null);
+                } else {
+                    operandsChecker(2, args.length);
+                    new Config().config(args[1], args[2]);
+                }
+                break;
             default:
                 System.out.println("No command with that name exists.");
                 System.exit(0);
         }
     }
 
+    /** Parses the operands of git diff [--cached] [--stat] [commit [commit]]. */
+    public static void diff(Staging s, String[] args) {
+        boolean cached = false;
+        boolean stat = false;
+        String[] commits = new String[2];
+        int count = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--cached")) {
+                cached = true;
+            } else if (args[i].equals("--stat")) {
+                stat = true;
+            } else if (count < 2) {
+                commits[count] = commitChecker(args[i]);
+                count += 1;
+            } else {
+                operandsChecker(1, 100);
+            }
+        }
+        if (cached && count > 0) {
+            operandsChecker(1, 100);
+        }
+        s.diff(cached, stat, commits[0], commits[1]);
+    }
+
+    /** Parses the operands of git gc [--prune[=now|=DAYS]]. */
+    public static void gc(Staging s, String[] args) {
+        long days = new Config().getLong("gc.pruneExpire", GarbageCollector.GRACE_DAYS);
+        if (args.length > 2) {
+            operandsChecker(1, args.length);
+        }
+        if (args.length == 2) {
+            if (args[1].equals("--prune=now")) {
+                days = 0;
+            } else if (args[1].startsWith("--prune=")) {
+                try {
+                    days = Long.parseLong(args[1].substring("--prune=".length()));
+                } catch (NumberFormatException excp) {
+                    operandsChecker(1, 100);
+                }
+            } else if (!args[1].equals("--prune")) {
+                operandsChecker(1, 100);
+            }
+        }
+        s.gc(days * GarbageCollector.DAY);
+    }
+
+    /** Parses the operands of git fetch remote branch,
+     *  git fetch --deepen=N remote and git fetch --unshallow remote. */
+    public static void fetch(Staging s, String[] args) {
+        operandsChecker(2, args.length);
+        if (args[1].equals("--unshallow")) {
+            s.deepen(args[2], 0);
+        } else if (args[1].startsWith("--deepen=")) {
+            s.deepen(args[2], positive(args[1].substring("--deepen=".length())));
+        } else {
+            s.fetch(args[1], args[2]);
+        }
+    }
+
+    /** Parses the operands of git bundle create file branch... [^exclude...]
+     *  and git bundle unbundle file. */
+    public static void bundle(Staging s, String[] args) {
+        if (args.length == 3 && args[1].equals("unbundle")) {
+            s.unbundle(new File(args[2]));
+        } else if (args.length >= 4 && args[1].equals("create")) {
+            ArrayList<String> branches = new ArrayList<>();
+            ArrayList<String> excludes = new ArrayList<>();
+            for (int i = 3; i < args.length; i++) {
+                if (args[i].startsWith("^")) {
+                    excludes.add(args[i].substring(1));
+                } else {
+                    branches.add(args[i]);
+                }
+            }
+            if (branches.isEmpty()) {
+                operandsChecker(1, 100);
+            }
+            s.createBundle(new File(args[2]), branches, excludes);
+        } else {
+            operandsChecker(1, 100);
+        }
+    }
+
+    /** Parses the operands of git sparse-checkout set|add pattern...,
+     *  git sparse-checkout list and git sparse-checkout disable. */
+    public static void sparseCheckout(Staging s, String[] args) {
+        if (args.length < 2) {
+            operandsChecker(1, args.length);
+        }
+        List<String> patterns = Arrays.asList(args).subList(2, args.length);
+        switch (args[1]) {
+            case "set":
+            case "add":
+                if (patterns.isEmpty()) {
+                    operandsChecker(1, 100);
+                }
+                break;
+            case "list":
+            case "disable":
+                operandsChecker(1, args.length);
+                break;
+            default:
+                operandsChecker(1, 100);
+        }
+        s.sparseCheckout(args[1], patterns);
+    }
+
+    /** Parses the operands of git stash [push], git stash list and
+     *  git stash pop|drop [stash@{N}]. */
+    public static void stash(Staging s, String[] args) {
+        String action = args.length == 1 ? "push" : args[1];
+        switch (action) {
+            case "push":
+                if (args.length > 2) {
+                    operandsChecker(1, args.length);
+                }
+                s.stashPush();
+                break;
+            case "list":
+                operandsChecker(1, args.length);
+                s.stashList();
+                break;
+            case "pop":
+            case "drop":
+                if (args.length > 3) {
+                    operandsChecker(1, args.length);
+                }
+                int index = args.length == 3 ? stashIndex(args[2]) : 0;
+                if (action.equals("pop")) {
+                    s.stashPop(index);
+                } else {
+                    s.stashDrop(index);
+                }
+                break;
+            default:
+                operandsChecker(1, 100);
+        }
+    }
+
+    /** Returns N of the stash entry named stash@{N}, or named N alone. */
+    public static int stashIndex(String entry) {
+        if (entry.startsWith("stash@{") && entry.endsWith("}")) {
+            entry = entry.substring("stash@{".length(), entry.length() - 1);
+        }
+        try {
+            int n = Integer.parseInt(entry);
+            if (n >= 0) {
+                return n;
+            }
+        } catch (NumberFormatException excp) {
+            //Reported below
+        }
+        System.out.println("Incorrect operands.");
+        System.exit(0);
+        return 0;
+    }
+
+    /** Parses the operands of git clone [--filter=blob:none] [--depth N] URL,
+     *  and creates a repository in the current directory whose remote origin
+     *  is URL. With the filter, origin becomes the promisor remote that Blobs
+     *  are fetched from when they are first needed. */
+    public static void cloneSetup(String[] args) {
+        cloneDepth(args);
+        new Repository();
+        Remote.add("origin", args[args.length - 1]);
+        if (Arrays.asList(args).contains("--filter=blob:none")) {
+            new Config().set("core.promisor", "origin");
+        }
+    }
+
+    /** Returns the depth given to git clone, or 0 for the whole history. */
+    public static int cloneDepth(String[] args) {
+        int depth = 0;
+        if (args.length < 2) {
+            operandsChecker(1, args.length);
+        }
+        for (int i = 1; i < args.length - 1; i++) {
+            if (args[i].equals("--depth") && i + 1 < args.length - 1) {
+                i += 1;
+                depth = positive(args[i]);
+            } else if (args[i].startsWith("--depth=")) {
+                depth = positive(args[i].substring("--depth=".length()));
+            } else if (!args[i].equals("--filter=blob:none")) {
+                operandsChecker(1, 100);
+            }
+        }
+        return depth;
+    }
+
+    /** Returns the positive number NUMBER, or exits if it is not one. */
+    public static int positive(String number) {
+        try {
+            int n = Integer.parseInt(number);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException excp) {
+            //Reported below
+        }
+        System.out.println("Incorrect operands.");
+        System.exit(0);
+        return 0;
+    }
+
+    /** Parses the operands of git serve [port] and serves the repository,
+     *  which locks the repository itself for each change it makes. Only
+     *  clients on this machine can connect unless serve.address is set. */
+    public static void serve(String[] args) {
+        int port = Server.PORT;
+        if (args.length > 2) {
+            operandsChecker(1, args.length);
+        }
+        if (args.length == 2) {
+            try {
+                port = Integer.parseInt(args[1]);
+            } catch (NumberFormatException excp) {
+                operandsChecker(1, 100);
+            }
+        }
+        new Server().serve(port);
+    }
+
     /** Checks if there is the correct number of operands. */
     public static void operandsChecker(int operands, int argsLength) {
         if (argsLength != operands + 1) {
@@ -0,0 +1,43 @@
+package gitlet;
+
+/** Bounds the bytes of file contents that work running in parallel holds
+ *  in memory at once. Each task reserves what it is about to load and
+ *  waits while that would exceed the budget; a task needing more than the
+ *  whole budget waits until nothing else is held and then runs alone.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class MemoryBudget {
+
+    /** The most bytes held at once. */
+    private long limit;
+    /** The bytes held now. */
+    private long held;
+
+    /** Creates a budget of LIMIT bytes. */
+    public MemoryBudget(long limit) {
+        this.limit = Math.max(1, limit);
+    }
+
+    /** Waits until BYTES more bytes may be held and reserves them. Returns
+     *  the amount reserved, which is to be passed to release(). */
+    public synchronized long acquire(long bytes) {
+        long amount = Math.min(bytes, limit);
+        try {
+            while (held + amount > limit) {
+                wait();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw Utils.error("Interrupted while waiting for memory.");
+        }
+        held += amount;
+        return amount;
+    }
+
+    /** Gives back AMOUNT bytes reserved by acquire(). */
+    public synchronized void release(long amount) {
+        held -= amount;
+        notifyAll();
+    }
+}
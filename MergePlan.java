@@ -0,0 +1,74 @@
+package gitlet;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** The outcome of a merge for each file, worked out in memory before the
+ *  CWD or the staging area is touched. A file is either taken (written
+ *  from a Blob and staged), deleted (removed and staged for removal),
+ *  conflicted, or kept as it is on the current branch, which is every file
+ *  the plan does not mention. A later decision about a file replaces an
+ *  earlier one, so a file moved by a rename can still take the given
+ *  branch's changes. A plan is only ever changed by one thread.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class MergePlan {
+
+    /** The files to take, each mapped to the Blob it gets. */
+    private TreeMap<String, String> taken;
+    /** The files to delete. */
+    private TreeSet<String> deleted;
+    /** The conflicted files, each mapped to its Blobs on the current and
+     *  the given branch, either of which is null if the file is absent. */
+    private TreeMap<String, String[]> conflicts;
+
+    /** Creates a plan that keeps every file. */
+    public MergePlan() {
+        taken = new TreeMap<>();
+        deleted = new TreeSet<>();
+        conflicts = new TreeMap<>();
+    }
+
+    /** Plans to write FILENAME from the Blob BLOB and stage it. */
+    public void take(String filename, String blob) {
+        forget(filename);
+        taken.put(filename, blob);
+    }
+
+    /** Plans to delete FILENAME and stage its removal. */
+    public void delete(String filename) {
+        forget(filename);
+        deleted.add(filename);
+    }
+
+    /** Plans a conflict in FILENAME between the Blobs CURRENT and GIVEN,
+     *  either of which may be null. */
+    public void conflict(String filename, String current, String given) {
+        forget(filename);
+        conflicts.put(filename, new String[] {current, given});
+    }
+
+    /** Drops any decision made about FILENAME so far. */
+    private void forget(String filename) {
+        taken.remove(filename);
+        deleted.remove(filename);
+        conflicts.remove(filename);
+    }
+
+    /** Returns the files to take, each mapped to its Blob. */
+    public Map<String, String> taken() {
+        return taken;
+    }
+
+    /** Returns the files to delete. */
+    public TreeSet<String> deleted() {
+        return deleted;
+    }
+
+    /** Returns the conflicted files, each mapped to its current and given Blobs. */
+    public Map<String, String[]> conflicts() {
+        return conflicts;
+    }
+}
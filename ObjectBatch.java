@@ -0,0 +1,121 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/** Represents objects received over the network that are being stored.
+ *  Each object is written to its own temporary file as it arrives; install()
+ *  then checks and syncs all of them at once and renames them into place,
+ *  so the cost of syncing is paid once per batch, no object is seen half
+ *  written, and no stored object is overwritten by one sent by a peer.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class ObjectBatch {
+
+    /** The .gitlet directory that the temporary files are kept in. */
+    private File dir;
+    /** The temporary files written so far. */
+    private ArrayList<File> temps;
+    /** The object files that the temporary files become. */
+    private ArrayList<File> targets;
+    /** The names of the objects written so far. */
+    private ArrayList<String> ids;
+
+    /** Creates an empty batch of objects for the .gitlet directory DIR. */
+    public ObjectBatch(File dir) {
+        this.dir = dir;
+        temps = new ArrayList<>();
+        targets = new ArrayList<>();
+        ids = new ArrayList<>();
+    }
+
+    /** Writes CONTENTS as the object ID of FOLDER, once installed. */
+    public void add(File folder, String id, byte[] contents) {
+        try (OutputStream out = add(folder, id)) {
+            out.write(contents);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Returns a stream that the contents of the object ID of FOLDER are
+     *  written to, which the caller closes, so that an object can be stored
+     *  as it arrives without being held whole. */
+    public OutputStream add(File folder, String id) throws IOException {
+        File temp = File.createTempFile(id, ".tmp", dir);
+        temps.add(temp);
+        targets.add(Utils.join(folder, id + ".txt"));
+        ids.add(id);
+        return new BufferedOutputStream(new FileOutputStream(temp), 1 << 16);
+    }
+
+    /** Checks and syncs every object of the batch in parallel, and then
+     *  renames into place those that are not stored yet; an object that is
+     *  already stored is never replaced. Fails if an object does not hold
+     *  what its name says. Must be called under an exclusive RepositoryLock,
+     *  so that the objects cannot race with gc or other commands. Returns
+     *  the names of the objects, and empties the batch. */
+    public List<String> install() {
+        IntStream.range(0, temps.size()).parallel().forEach(i -> {
+            if (!matches(targets.get(i).getParentFile(), temps.get(i), ids.get(i))) {
+                throw Utils.error("Received object %s does not match its name.", ids.get(i));
+            }
+            try (FileChannel channel = FileChannel.open(temps.get(i).toPath(),
+                    StandardOpenOption.WRITE)) {
+                channel.force(false);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp);
+            }
+        });
+        try {
+            for (int i = 0; i < temps.size(); i++) {
+                if (targets.get(i).isFile()) {
+                    temps.get(i).delete();
+                    continue;
+                }
+                targets.get(i).getParentFile().mkdirs();
+                Files.move(temps.get(i).toPath(), targets.get(i).toPath(),
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+        List<String> installed = ids;
+        temps = new ArrayList<>();
+        targets = new ArrayList<>();
+        ids = new ArrayList<>();
+        return installed;
+    }
+
+    /** Returns true if the object SAVED, bound for FOLDER, holds what its
+     *  name ID says. */
+    private static boolean matches(File folder, File saved, String id) {
+        if (folder.getName().equals(Blob.CHUNK_FOLDER.getName())) {
+            return Blob.holdsChunk(saved, id);
+        } else if (folder.getName().equals(Blob.BLOB_FOLDER.getName())) {
+            return Blob.holds(saved, id);
+        }
+        return Commit.holds(saved, id);
+    }
+
+    /** Deletes the temporary files of objects that were never installed. */
+    public void discard() {
+        for (File temp : temps) {
+            temp.delete();
+        }
+        temps.clear();
+        targets.clear();
+        ids.clear();
+    }
+}
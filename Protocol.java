@@ -0,0 +1,198 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/** The wire protocol between a TcpRemote and a Server. Every message is a
+ *  frame: a 4 byte length, a 1 byte type and the payload. Object names are
+ *  sent as their 20 raw bytes, and lists as a 4 byte count followed by the
+ *  items. Requests may be pipelined: a client can send any number of them
+ *  before reading the responses, which come back in the same order. Every
+ *  request has one response, except GET, which has one OBJECT frame per
+ *  name asked for, and PUT, which has none until the END that follows.
+ *  OBJECT and PUT frames give the length of their object and carry at most
+ *  PART_SIZE bytes of it; the rest follows in PART frames, so that no
+ *  object is ever too large to send or has to be held whole.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Protocol {
+
+    /** Request for the branches of the repository. */
+    static final byte BRANCHES = 1;
+    /** Request for which of a list of objects the repository has. */
+    static final byte HAS = 2;
+    /** Request for the Commits reachable from some Commits but not others. */
+    static final byte MISSING_COMMITS = 3;
+    /** Request for the Blobs of some Commits. */
+    static final byte BLOBS_OF = 4;
+    /** Request for the chunks of some Blobs. */
+    static final byte CHUNKS_OF = 5;
+    /** Request for the contents of some objects. */
+    static final byte GET = 6;
+    /** Request to store one object. */
+    static final byte PUT = 7;
+    /** Request to make the objects of the preceding PUTs durable. */
+    static final byte END = 8;
+    /** Request to move a branch. */
+    static final byte UPDATE_BRANCH = 9;
+    /** Response carrying a result. */
+    static final byte OK = 10;
+    /** Response carrying one object. */
+    static final byte OBJECT = 11;
+    /** Response carrying an error message. */
+    static final byte ERROR = 12;
+    /** Frame carrying the next piece of the object of an OBJECT or PUT. */
+    static final byte PART = 13;
+    /** Largest frame accepted. */
+    static final int MAX_FRAME = 64 << 20;
+    /** Largest piece of an object sent in one frame. */
+    static final int PART_SIZE = 1 << 20;
+    /** Length in bytes of an object name. */
+    static final int ID_SIZE = 20;
+
+    /** Returns a payload of a frame of TYPE being built. */
+    static DataOutputStream frame(ByteArrayOutputStream bytes, byte type) {
+        bytes.write(type);
+        return new DataOutputStream(bytes);
+    }
+
+    /** Writes the frame in BYTES, which was started by frame(), to OUT. */
+    static void send(DataOutputStream out, ByteArrayOutputStream bytes) throws IOException {
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /** Returns the next frame from IN, type first, or null at the end of the stream. */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException excp) {
+            return null;
+        }
+        if (length < 1 || length > MAX_FRAME) {
+            throw new IOException("bad frame length " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    /** Returns a stream over the payload of FRAME, which must be of TYPE. */
+    static DataInputStream payload(byte[] frame, byte type) throws IOException {
+        if (frame == null) {
+            throw new EOFException("connection closed");
+        }
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(frame, 1, frame.length - 1));
+        if (frame[0] == ERROR && type != ERROR) {
+            throw new IOException(in.readUTF());
+        }
+        if (frame[0] != type) {
+            throw new IOException("unexpected frame type " + frame[0]);
+        }
+        return in;
+    }
+
+    /** Finishes the frame in BYTES, which was started by frame(), with the
+     *  length of FILE and as much of it as fits in one piece, and writes it
+     *  to OUT followed by a PART frame for each further piece. */
+    static void sendObject(DataOutputStream out, ByteArrayOutputStream bytes, File file)
+            throws IOException {
+        try (InputStream contents = new FileInputStream(file)) {
+            long left = file.length();
+            new DataOutputStream(bytes).writeLong(left);
+            byte[] piece = new byte[(int) Math.min(left, PART_SIZE)];
+            while (true) {
+                int size = (int) Math.min(left, PART_SIZE);
+                if (contents.readNBytes(piece, 0, size) != size) {
+                    throw new EOFException("object shrank: " + file.getName());
+                }
+                bytes.write(piece, 0, size);
+                send(out, bytes);
+                left -= size;
+                if (left == 0) {
+                    return;
+                }
+                bytes = new ByteArrayOutputStream();
+                frame(bytes, PART);
+            }
+        }
+    }
+
+    /** Copies the object whose frame has FRAME left to read to TO, reading
+     *  its further pieces from IN. */
+    static void receiveObject(DataInputStream frame, DataInputStream in, OutputStream to)
+            throws IOException {
+        long left = frame.readLong();
+        while (true) {
+            byte[] piece = frame.readAllBytes();
+            if (piece.length > left) {
+                throw new IOException("object longer than announced");
+            }
+            to.write(piece);
+            left -= piece.length;
+            if (left == 0) {
+                return;
+            }
+            frame = payload(readFrame(in), PART);
+        }
+    }
+
+    /** Writes the object name ID to OUT. */
+    static void writeId(DataOutputStream out, String id) throws IOException {
+        for (int i = 0; i < ID_SIZE; i++) {
+            out.writeByte(Integer.parseInt(id.substring(2 * i, 2 * i + 2), 16));
+        }
+    }
+
+    /** Reads an object name from IN. */
+    static String readId(DataInputStream in) throws IOException {
+        StringBuilder id = new StringBuilder(2 * ID_SIZE);
+        for (int i = 0; i < ID_SIZE; i++) {
+            int b = in.readUnsignedByte();
+            id.append(Character.forDigit(b >>> 4, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return id.toString();
+    }
+
+    /** Writes the object names IDS to OUT. */
+    static void writeIds(DataOutputStream out, List<String> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (String id : ids) {
+            writeId(out, id);
+        }
+    }
+
+    /** Reads a list of object names from IN. */
+    static List<String> readIds(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        ArrayList<String> ids = new ArrayList<>(Math.min(count, 1 << 16));
+        for (int i = 0; i < count; i++) {
+            ids.add(readId(in));
+        }
+        return ids;
+    }
+
+    /** Returns the local object folder called NAME, which must be one of
+     *  the commits, blobs and chunks folders. */
+    static File folder(String name) throws IOException {
+        for (File folder : new File[] {Commit.COMMIT_FOLDER, Blob.BLOB_FOLDER, Blob.CHUNK_FOLDER}) {
+            if (folder.getName().equals(name)) {
+                return folder;
+            }
+        }
+        throw new IOException("unknown object folder " + name);
+    }
+}
@@ -0,0 +1,370 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import jdk.jfr.Event;
+
+/** Represents another gitlet repository that branches can be fetched from
+ *  and pushed to. The two sides first exchange Commit names to find the
+ *  Commits they have in common, and then only the Commits, Blobs and chunks
+ *  that the receiving side lacks are transferred, in batches. Objects are
+ *  sent chunks first, then Blobs, then Commits, so that an object that has
+ *  arrived always has everything it refers to. A partial clone fetches
+ *  Commits only, and fetches each Blob from its promisor remote when it is
+ *  first needed. Subclasses say how the other repository is reached.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public abstract class Remote {
+
+    /** Number of Commit names offered in the first round of negotiation;
+     *  each later round offers twice as many. */
+    static final int FIRST_BATCH = 16;
+    /** Largest number of Commit names offered while negotiating. */
+    static final int MAX_HAVES = 4096;
+
+    /** Returns the branches of the remote (key = branch name, value = head Commit). */
+    public abstract HashMap<String, String> branches();
+
+    /** Returns those of IDS that the remote has in the folder of the same
+     *  name as the local FOLDER. */
+    public abstract List<String> has(File folder, List<String> ids);
+
+    /** Returns the Commits of the remote reachable from WANTS but not from
+     *  COMMON, going at most DEPTH Commits back from WANTS if DEPTH > 0. */
+    public abstract List<String> missingCommits(List<String> wants, List<String> common,
+                                                int depth);
+
+    /** Returns every Blob of the remote's Commits COMMITS. */
+    public abstract List<String> blobsOf(List<String> commits);
+
+    /** Returns every chunk of the remote's Blobs BLOBS. */
+    public abstract List<String> chunksOf(List<String> blobs);
+
+    /** Copies the objects IDS from the remote into the local FOLDER. */
+    public abstract void download(File folder, List<String> ids);
+
+    /** Copies the objects IDS in the local FOLDER to the remote. */
+    public abstract void upload(File folder, List<String> ids);
+
+    /** Points the remote's BRANCH at HEAD if it still points at EXPECTED,
+     *  which is null for a new branch. Returns false if it does not. */
+    public abstract boolean updateBranch(String branch, String expected, String head);
+
+    /** Releases the remote. */
+    public abstract void close();
+
+    /** Returns the branch checked out in the remote's working directory,
+     *  which a push must not move, or null if the remote checks no branch
+     *  out that this side can see. */
+    public String checkedOut() {
+        return null;
+    }
+
+    /** Opens the remote called NAME for fetching, or for pushing if WRITE. */
+    public static Remote open(String name, boolean write) {
+        String url = new Config().get("remote." + name + ".url", null);
+        if (url == null) {
+            System.out.println("Remote directory not found.");
+            System.exit(0);
+        }
+        if (url.startsWith(TcpRemote.SCHEME)) {
+            return new TcpRemote(url);
+        }
+        return new LocalRemote(new File(url.replace("/", File.separator)), write);
+    }
+
+    /** Saves a remote called NAME at PATH. Used for git add-remote. */
+    public static void add(String name, String path) {
+        Config config = new Config();
+        if (config.get("remote." + name + ".url", null) != null) {
+            System.out.println("A remote with that name already exists.");
+            System.exit(0);
+        }
+        config.set("remote." + name + ".url", path);
+    }
+
+    /** Forgets the remote called NAME. Used for git rm-remote. */
+    public static void remove(String name) {
+        Config config = new Config();
+        if (config.get("remote." + name + ".url", null) == null) {
+            System.out.println("A remote with that name does not exist.");
+            System.exit(0);
+        }
+        config.unset("remote." + name + ".url");
+    }
+
+    /** Copies the remote's BRANCH into this repository, with every object
+     *  that JOURNAL's repository lacks, negotiating from the local branch
+     *  heads LOCALHEADS. Blobs and chunks are left on the remote unless
+     *  WITHBLOBS, and only DEPTH Commits of history are copied if DEPTH > 0,
+     *  which moves the boundary of HISTORY. Returns the head of BRANCH, or
+     *  null if the remote does not have it.
+     *  Used for git fetch. */
+    public String fetch(String branch, Collection<String> localHeads, Journal journal,
+                        History history, boolean withBlobs, int depth) {
+        String head = branches().get(branch);
+        if (head == null) {
+            return null;
+        }
+        List<String> commits = fetch(List.of(head), localHeads, journal, withBlobs, depth);
+        if (history.isShallow() || depth > 0) {
+            history.update(commits, journal);
+        }
+        return head;
+    }
+
+    /** Copies the Commits WANTS of the remote, and the history behind them,
+     *  into this repository like fetch(BRANCH, ...) does, and returns the
+     *  names of the Commits copied. */
+    public List<String> fetch(List<String> wants, Collection<String> localHeads,
+                              Journal journal, boolean withBlobs, int depth) {
+        List<String> commits = lacking(Commit.COMMIT_FOLDER,
+                missingCommits(wants, negotiate(localHeads), depth), journal);
+        List<String> blobs = List.of();
+        List<String> chunks = List.of();
+        if (withBlobs) {
+            blobs = lacking(Blob.BLOB_FOLDER, blobsOf(commits), journal);
+            chunks = lacking(Blob.CHUNK_FOLDER, chunksOf(blobs), journal);
+        }
+        download(Blob.CHUNK_FOLDER, chunks);
+        download(Blob.BLOB_FOLDER, blobs);
+        download(Commit.COMMIT_FOLDER, commits);
+        journal.addObjects(chunks);
+        journal.addObjects(blobs);
+        journal.addObjects(commits);
+        return commits;
+    }
+
+    /** Sends the local Commit HEAD, with every object the remote lacks, and
+     *  points the remote's BRANCH at it. The remote branch must be in the
+     *  history of HEAD, and must not be checked out in the remote, as its
+     *  working directory and staging area would no longer match it. Blobs
+     *  that a partial clone lacks are fetched first, telling JOURNAL. Used
+     *  for git push. */
+    public void push(String branch, String head, Journal journal) {
+        if (branch.equals(checkedOut())) {
+            System.out.println("Cannot push to the branch checked out in the remote.");
+            System.exit(0);
+        }
+        HashMap<String, String> remoteBranches = branches();
+        String remoteHead = remoteBranches.get(branch);
+        if (remoteHead != null && (!Utils.join(Commit.COMMIT_FOLDER, remoteHead + ".txt").isFile()
+                || !missingCommits(Repository.GITLET_DIR, List.of(remoteHead),
+                        List.of(head), 0).isEmpty())) {
+            System.out.println("Please pull down remote changes before pushing.");
+            System.exit(0);
+        }
+        List<String> common = existing(Repository.GITLET_DIR, Commit.COMMIT_FOLDER,
+                new ArrayList<>(remoteBranches.values()));
+        List<String> commits = missingCommits(Repository.GITLET_DIR, List.of(head), common, 0);
+        commits = without(commits, has(Commit.COMMIT_FOLDER, commits));
+        List<String> blobs = blobsOf(Repository.GITLET_DIR, commits);
+        blobs = without(blobs, has(Blob.BLOB_FOLDER, blobs));
+        fetchAbsent(blobs, journal);
+        List<String> chunks = chunksOf(Repository.GITLET_DIR, blobs);
+        chunks = without(chunks, has(Blob.CHUNK_FOLDER, chunks));
+        upload(Blob.CHUNK_FOLDER, chunks);
+        upload(Blob.BLOB_FOLDER, blobs);
+        upload(Commit.COMMIT_FOLDER, commits);
+        if (!updateBranch(branch, remoteHead, head)) {
+            System.out.println("Please pull down remote changes before pushing.");
+            System.exit(0);
+        }
+    }
+
+    /** Downloads the Blobs BLOBS, with their chunks, from the remote named
+     *  by the setting core.promisor, which a partial clone leaves them on.
+     *  Returns the names of the objects downloaded, which is empty if there
+     *  is no such remote. */
+    public static List<String> fetchPromised(List<String> blobs) {
+        String name = new Config().get("core.promisor", null);
+        if (name == null || blobs.isEmpty()) {
+            return List.of();
+        }
+        Remote remote = open(name, false);
+        try {
+            List<String> chunks = remote.chunksOf(blobs).stream()
+                    .filter(id -> !Utils.join(Blob.CHUNK_FOLDER, id + ".txt").isFile())
+                    .collect(Collectors.toList());
+            remote.download(Blob.CHUNK_FOLDER, chunks);
+            remote.download(Blob.BLOB_FOLDER, blobs);
+            ArrayList<String> fetched = new ArrayList<>(chunks);
+            fetched.addAll(blobs);
+            return fetched;
+        } finally {
+            remote.close();
+        }
+    }
+
+    /** Fetches those of the Blobs BLOBS that this repository lacks, with
+     *  their chunks, from the promisor remote of a partial clone in one
+     *  batch, and tells JOURNAL of the objects fetched so that its object
+     *  filter learns of them. Null names are skipped. */
+    public static void fetchAbsent(Collection<String> blobs, Journal journal) {
+        journal.addObjects(fetchPromised(blobs.stream()
+                .filter(id -> id != null && !Utils.join(Blob.BLOB_FOLDER, id + ".txt").isFile())
+                .distinct()
+                .collect(Collectors.toList())));
+    }
+
+    /** Returns the Commits that both repositories have, found by offering
+     *  the remote the local Commits newest first, starting at LOCALHEADS, in
+     *  rounds of growing size. The ancestors of a Commit the remote has are
+     *  not offered. */
+    public List<String> negotiate(Collection<String> localHeads) {
+        ArrayList<String> common = new ArrayList<>();
+        History history = new History();
+        PriorityQueue<Commit> queue = new PriorityQueue<>(newestFirst());
+        HashSet<String> seen = new HashSet<>();
+        for (String head : localHeads) {
+            if (head != null && seen.add(head)) {
+                queue.add(Commit.readCommit(head));
+            }
+        }
+        int batch = FIRST_BATCH;
+        int offered = 0;
+        while (!queue.isEmpty() && offered < MAX_HAVES) {
+            ArrayList<Commit> round = new ArrayList<>();
+            while (!queue.isEmpty() && round.size() < batch) {
+                round.add(queue.poll());
+            }
+            HashSet<String> acked = new HashSet<>(has(Commit.COMMIT_FOLDER,
+                    round.stream().map(Commit::getName).collect(Collectors.toList())));
+            common.addAll(acked);
+            for (Commit c : round) {
+                if (acked.contains(c.getName())) {
+                    continue;
+                }
+                for (String parent : history.parents(c)) {
+                    if (seen.add(parent)) {
+                        queue.add(history.read(parent));
+                    }
+                }
+            }
+            offered += round.size();
+            batch *= 2;
+        }
+        return common;
+    }
+
+    /** Returns the Commits of the repository whose .gitlet directory is DIR
+     *  that are reachable from WANTS but not from COMMON, newest first, going
+     *  at most DEPTH Commits back from WANTS if DEPTH > 0. Commits are
+     *  visited newest first and the walk stops once every Commit left to
+     *  visit is reachable from COMMON, so only the history between the two
+     *  is read. */
+    static List<String> missingCommits(File dir, List<String> wants, List<String> common,
+                                       int depth) {
+        Event event = FlightEvents.begin(FlightEvents.ANCESTRY_WALK);
+        History history = new History(dir);
+        PriorityQueue<Commit> queue = new PriorityQueue<>(newestFirst());
+        HashMap<String, Boolean> fromCommon = new HashMap<>();
+        HashMap<String, Integer> depths = new HashMap<>();
+        HashSet<String> visited = new HashSet<>();
+        int pending = 0;
+        for (String id : existing(dir, Commit.COMMIT_FOLDER, common)) {
+            if (fromCommon.put(id, true) == null) {
+                queue.add(history.read(id));
+            }
+        }
+        for (String id : wants) {
+            if (!fromCommon.containsKey(id)) {
+                fromCommon.put(id, false);
+                depths.put(id, 1);
+                queue.add(history.read(id));
+                pending += 1;
+            }
+        }
+        ArrayList<String> missing = new ArrayList<>();
+        while (pending > 0) {
+            Commit c = queue.poll();
+            boolean isCommon = fromCommon.get(c.getName());
+            visited.add(c.getName());
+            if (!isCommon) {
+                missing.add(c.getName());
+                pending -= 1;
+            }
+            int next = isCommon ? 0 : depths.get(c.getName()) + 1;
+            if (depth > 0 && next > depth) {
+                continue;
+            }
+            for (String parent : history.parents(c)) {
+                Boolean reached = fromCommon.get(parent);
+                if (!isCommon) {
+                    depths.merge(parent, next, Math::min);
+                }
+                if (reached == null) {
+                    fromCommon.put(parent, isCommon);
+                    queue.add(history.read(parent));
+                    if (!isCommon) {
+                        pending += 1;
+                    }
+                } else if (isCommon && !reached && !visited.contains(parent)) {
+                    fromCommon.put(parent, true);
+                    pending -= 1;
+                }
+            }
+        }
+        if (event != null) {
+            FlightEvents.commit(event, "missingCommits", wants.isEmpty() ? null : wants.get(0),
+                    visited.size());
+        }
+        return missing;
+    }
+
+    /** Returns every Blob of COMMITS in the repository whose .gitlet directory is DIR. */
+    static List<String> blobsOf(File dir, List<String> commits) {
+        File folder = Utils.join(dir, Commit.COMMIT_FOLDER.getName());
+        return CommandThread.parallel(() -> commits.parallelStream()
+                .flatMap(id -> Commit.readCommit(folder, id).getFiles().values().stream())
+                .distinct()
+                .collect(Collectors.toList()));
+    }
+
+    /** Returns every chunk of BLOBS in the repository whose .gitlet directory is DIR. */
+    static List<String> chunksOf(File dir, List<String> blobs) {
+        File folder = Utils.join(dir, Blob.BLOB_FOLDER.getName());
+        return CommandThread.parallel(() -> blobs.parallelStream()
+                .map(id -> Blob.readBlob(folder, id).getChunks())
+                .filter(chunks -> chunks != null)
+                .flatMap(List::stream)
+                .distinct()
+                .collect(Collectors.toList()));
+    }
+
+    /** Returns those of IDS that exist in the folder of the same name as the
+     *  local FOLDER in the repository whose .gitlet directory is DIR. */
+    static List<String> existing(File dir, File folder, List<String> ids) {
+        File objects = Utils.join(dir, folder.getName());
+        return CommandThread.parallel(() -> ids.parallelStream()
+                .filter(id -> id != null && Utils.join(objects, id + ".txt").isFile())
+                .collect(Collectors.toList()));
+    }
+
+    /** Returns those of IDS that JOURNAL's repository lacks in FOLDER. */
+    private static List<String> lacking(File folder, List<String> ids, Journal journal) {
+        return ids.stream()
+                .filter(id -> !journal.contains(folder, id))
+                .collect(Collectors.toList());
+    }
+
+    /** Returns IDS without the names in OTHERS. */
+    private static List<String> without(List<String> ids, List<String> others) {
+        HashSet<String> excluded = new HashSet<>(others);
+        return ids.stream().filter(id -> !excluded.contains(id)).collect(Collectors.toList());
+    }
+
+    /** Orders Commits from the newest to the oldest. */
+    private static Comparator<Commit> newestFirst() {
+        return Comparator.comparing(Commit::getTimestamp).reversed()
+                .thenComparing(Commit::getName);
+    }
+}
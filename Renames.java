@@ -0,0 +1,317 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/** Pairs removed files with added files whose contents are similar enough
+ *  to call the pair a rename. Each file is reduced to a MinHash sketch of its
+ *  lines (or of content-defined chunks for binary files, so that an inserted
+ *  byte only changes the chunk it falls in), and candidates are found
+ *  by bucketing bands of the sketches, so the cost grows with the number of
+ *  changed files rather than with the product of removed and added files.
+ *  Files larger than Diff.MAX_TEXT_SIZE are never read, and so never paired.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Renames {
+
+    /** Default minimum similarity, as a percentage, for a rename. */
+    static final int SIMILARITY = 50;
+    /** Number of minimum hashes kept for each file. */
+    static final int SKETCH_SIZE = 64;
+    /** Number of sketch entries hashed together into one bucket key. */
+    static final int BAND_ROWS = 2;
+    /** Smallest chunk that binary files are split into. */
+    static final int BINARY_MIN = 16;
+    /** Average size of the chunks of binary files; a power of two. */
+    static final int BINARY_AVG = 64;
+    /** Largest chunk that binary files are split into. */
+    static final int BINARY_MAX = 256;
+
+    /** Minimum similarity, as a percentage, for a pair to count as a rename. */
+    private int threshold;
+    /** Seeds of the hash functions used for the sketches. */
+    private long[] seeds;
+    /** The names of the removed files. */
+    private ArrayList<String> removedPaths;
+    /** The sketch of each removed file. */
+    private ArrayList<long[]> removedSketches;
+    /** The Sha 1 of the contents of each removed file. */
+    private ArrayList<String> removedDigests;
+    /** The names of the added files. */
+    private ArrayList<String> addedPaths;
+    /** The sketch of each added file. */
+    private ArrayList<long[]> addedSketches;
+    /** The Sha 1 of the contents of each added file. */
+    private ArrayList<String> addedDigests;
+    /** Similarity of each pair found by the last call to detect. */
+    private HashMap<String, Integer> similarities;
+    /** The contents of each file recorded, until they are taken by load. */
+    private HashMap<String, byte[]> contents;
+
+    public Renames(int threshold) {
+        this.threshold = threshold;
+        seeds = new long[SKETCH_SIZE];
+        SplittableRandom random = new SplittableRandom(0x6769746c6574L);
+        for (int i = 0; i < SKETCH_SIZE; i++) {
+            seeds[i] = random.nextLong();
+        }
+        removedPaths = new ArrayList<>();
+        removedSketches = new ArrayList<>();
+        removedDigests = new ArrayList<>();
+        addedPaths = new ArrayList<>();
+        addedSketches = new ArrayList<>();
+        addedDigests = new ArrayList<>();
+        similarities = new HashMap<>();
+        contents = new HashMap<>();
+    }
+
+    /** Returns the renames from the files only in BEFORE to the files only in
+     *  AFTER (key = new filename, value = old filename). Both maps are keyed by
+     *  filename with blob names as values; a null blob name in AFTER means the
+     *  file is read from the CWD. */
+    public static TreeMap<String, String> between(Map<String, String> before,
+                                                  Map<String, String> after) {
+        return between(before, after, new Renames(SIMILARITY));
+    }
+
+    /** Like between(BEFORE, AFTER), but collects the files into RENAMES so
+     *  that the caller can ask it for similarities afterwards. */
+    public static TreeMap<String, String> between(Map<String, String> before,
+                                                  Map<String, String> after, Renames renames) {
+        boolean removals = false;
+        for (String path : before.keySet()) {
+            if (!after.containsKey(path)) {
+                removals = true;
+                break;
+            }
+        }
+        if (!removals) {
+            return new TreeMap<>();
+        }
+        for (Map.Entry<String, String> entry : after.entrySet()) {
+            if (!before.containsKey(entry.getKey())
+                    && !Diff.tooLarge(entry.getValue(), entry.getKey())) {
+                renames.added(entry.getKey(), renames.read(entry.getValue(), entry.getKey()));
+            }
+        }
+        if (renames.addedPaths.isEmpty()) {
+            return new TreeMap<>();
+        }
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!after.containsKey(entry.getKey())
+                    && !Diff.tooLarge(entry.getValue(), entry.getKey())) {
+                renames.removed(entry.getKey(), renames.read(entry.getValue(), entry.getKey()));
+            }
+        }
+        return renames.detect();
+    }
+
+    /** Returns the contents of blob ID, or of the CWD copy of PATH if ID is
+     *  null, keeping them for load. */
+    private byte[] read(String id, String path) {
+        byte[] file = Diff.load(id, path);
+        contents.put(path, file);
+        return file;
+    }
+
+    /** Returns the contents of blob ID, or of the CWD copy of PATH if ID is
+     *  null, which are not read again if between already read them. Added
+     *  and removed files never share a path, so PATH names one of them. */
+    public byte[] load(String id, String path) {
+        byte[] file = contents.remove(path);
+        return file != null ? file : Diff.load(id, path);
+    }
+
+    /** Records that PATH, with the given CONTENTS, was removed. */
+    public void removed(String path, byte[] contents) {
+        if (contents.length == 0) {
+            return;
+        }
+        removedPaths.add(path);
+        removedSketches.add(sketch(contents));
+        removedDigests.add(Utils.sha1(contents));
+    }
+
+    /** Records that PATH, with the given CONTENTS, was added. */
+    public void added(String path, byte[] contents) {
+        if (contents.length == 0) {
+            return;
+        }
+        addedPaths.add(path);
+        addedSketches.add(sketch(contents));
+        addedDigests.add(Utils.sha1(contents));
+    }
+
+    /** Returns the best rename for each added file (key = new filename,
+     *  value = old filename). Each removed file is used at most once. */
+    public TreeMap<String, String> detect() {
+        TreeMap<String, String> renames = new TreeMap<>();
+        similarities = new HashMap<>();
+        boolean[] removedUsed = new boolean[removedPaths.size()];
+        boolean[] addedUsed = new boolean[addedPaths.size()];
+
+        //Exact renames first, matched by content digest
+        HashMap<String, ArrayList<Integer>> byDigest = new HashMap<>();
+        for (int i = 0; i < removedDigests.size(); i++) {
+            byDigest.computeIfAbsent(removedDigests.get(i), k -> new ArrayList<>()).add(i);
+        }
+        for (int j = 0; j < addedDigests.size(); j++) {
+            ArrayList<Integer> same = byDigest.get(addedDigests.get(j));
+            if (same == null) {
+                continue;
+            }
+            for (int i : same) {
+                if (!removedUsed[i]) {
+                    removedUsed[i] = true;
+                    addedUsed[j] = true;
+                    renames.put(addedPaths.get(j), removedPaths.get(i));
+                    similarities.put(addedPaths.get(j), 100);
+                    break;
+                }
+            }
+        }
+
+        //Inexact renames, with candidates taken from shared sketch bands
+        HashMap<Long, ArrayList<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < removedSketches.size(); i++) {
+            if (removedUsed[i]) {
+                continue;
+            }
+            long[] sketch = removedSketches.get(i);
+            for (int band = 0; band < SKETCH_SIZE / BAND_ROWS; band++) {
+                buckets.computeIfAbsent(bandKey(sketch, band), k -> new ArrayList<>()).add(i);
+            }
+        }
+        ArrayList<int[]> candidates = new ArrayList<>();
+        for (int j = 0; j < addedSketches.size(); j++) {
+            if (addedUsed[j]) {
+                continue;
+            }
+            long[] sketch = addedSketches.get(j);
+            HashSet<Integer> seen = new HashSet<>();
+            for (int band = 0; band < SKETCH_SIZE / BAND_ROWS; band++) {
+                ArrayList<Integer> bucket = buckets.get(bandKey(sketch, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i : bucket) {
+                    if (seen.add(i)) {
+                        int score = score(removedSketches.get(i), sketch);
+                        if (score >= threshold) {
+                            candidates.add(new int[] {score, i, j});
+                        }
+                    }
+                }
+            }
+        }
+        candidates.sort((x, y) -> {
+            if (x[0] != y[0]) {
+                return y[0] - x[0];
+            }
+            int byAdded = addedPaths.get(x[2]).compareTo(addedPaths.get(y[2]));
+            if (byAdded != 0) {
+                return byAdded;
+            }
+            return removedPaths.get(x[1]).compareTo(removedPaths.get(y[1]));
+        });
+        for (int[] candidate : candidates) {
+            if (removedUsed[candidate[1]] || addedUsed[candidate[2]]) {
+                continue;
+            }
+            removedUsed[candidate[1]] = true;
+            addedUsed[candidate[2]] = true;
+            renames.put(addedPaths.get(candidate[2]), removedPaths.get(candidate[1]));
+            similarities.put(addedPaths.get(candidate[2]), candidate[0]);
+        }
+        return renames;
+    }
+
+    /** Returns the similarity percentage of the rename to ADDEDPATH found by
+     *  the last call to detect. */
+    public int similarity(String addedPath) {
+        return similarities.getOrDefault(addedPath, 0);
+    }
+
+    /** Returns the estimated similarity of two files, as a percentage, from
+     *  the fraction of their sketch entries that agree. */
+    private static int score(long[] a, long[] b) {
+        int same = 0;
+        for (int i = 0; i < SKETCH_SIZE; i++) {
+            if (a[i] == b[i]) {
+                same += 1;
+            }
+        }
+        return same * 100 / SKETCH_SIZE;
+    }
+
+    /** Returns the bucket key of the given BAND of SKETCH. */
+    private static long bandKey(long[] sketch, int band) {
+        long key = band;
+        for (int r = 0; r < BAND_ROWS; r++) {
+            key = mix(key * 31 + sketch[band * BAND_ROWS + r]);
+        }
+        return key;
+    }
+
+    /** Returns the MinHash sketch of CONTENTS: for each seed, the smallest
+     *  hash of any distinct line (or chunk, for binary files). */
+    private long[] sketch(byte[] contents) {
+        long[] mins = new long[SKETCH_SIZE];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        HashSet<Long> shingles = new HashSet<>();
+        if (Diff.isBinary(contents)) {
+            Chunker chunker = new Chunker(new ByteArrayInputStream(contents),
+                    BINARY_MIN, BINARY_AVG, BINARY_MAX);
+            for (byte[] chunk = chunker.next(); chunk != null; chunk = chunker.next()) {
+                shingles.add(hash(chunk, 0, chunk.length));
+            }
+        } else {
+            int start = 0;
+            for (int i = 0; i <= contents.length; i++) {
+                if (i == contents.length || contents[i] == '\n') {
+                    int end = i;
+                    if (end > start && contents[end - 1] == '\r') {
+                        end -= 1;
+                    }
+                    if (end > start) {
+                        shingles.add(hash(contents, start, end));
+                    }
+                    start = i + 1;
+                }
+            }
+        }
+        for (long shingle : shingles) {
+            for (int i = 0; i < SKETCH_SIZE; i++) {
+                long h = mix(shingle ^ seeds[i]);
+                if (h < mins[i]) {
+                    mins[i] = h;
+                }
+            }
+        }
+        return mins;
+    }
+
+    /** Returns a 64-bit FNV-1a hash of CONTENTS[START..END). */
+    private static long hash(byte[] contents, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= contents[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** Returns X with its bits mixed (the SplitMix64 finalizer). */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -24,19 +24,24 @@ public class Repository {
             System.exit(0);
         }
 
+        Journal journal = new Journal();
         if (!Commit.COMMIT_FOLDER.isDirectory()) {
             Commit.COMMIT_FOLDER.mkdir();
         }
         if (Commit.COMMIT_FOLDER.list().length == 0) {
-            new Commit("initial commit");
+            new Commit("initial commit", journal);
         }
 
         if (!Blob.BLOB_FOLDER.isDirectory()) {
             Blob.BLOB_FOLDER.mkdir();
         }
+        if (!Blob.CHUNK_FOLDER.isDirectory()) {
+            Blob.CHUNK_FOLDER.mkdir();
+        }
 
         if (!Utils.join(GITLET_DIR, "staging.txt").isFile()) {
-            new Staging();
+            new Staging(journal);
         }
+        journal.commit();
     }
 }
@@ -0,0 +1,77 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+
+/** Represents a lock on a gitlet repository, held on .gitlet/lock for the
+ *  length of one command. Commands that only read take a shared lock, so any
+ *  number of them can run at once, while commands that write take an
+ *  exclusive lock. Waiting for a lock gives up after core.lockTimeout
+ *  milliseconds.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class RepositoryLock {
+
+    /** The file that is locked. */
+    static final File LOCK_FILE = Utils.join(Repository.GITLET_DIR, "lock");
+    /** Default number of milliseconds to wait for a lock. */
+    static final long TIMEOUT = 10000;
+    /** Longest pause, in milliseconds, between attempts to take the lock. */
+    static final long MAX_BACKOFF = 50;
+
+    /** The channel that the lock is held through. */
+    private FileChannel channel;
+    /** The lock itself. */
+    private FileLock lock;
+
+    /** Takes a shared lock if SHARED, or an exclusive one otherwise. */
+    public RepositoryLock(boolean shared) {
+        this(LOCK_FILE, shared);
+    }
+
+    /** Takes a shared lock on LOCKFILE if SHARED, or an exclusive one
+     *  otherwise. Used to lock other repositories, such as remotes. */
+    public RepositoryLock(File lockFile, boolean shared) {
+        long timeout = new Config().getLong("core.lockTimeout", TIMEOUT);
+        long deadline = System.currentTimeMillis() + timeout;
+        try {
+            channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long backoff = 1;
+            while (true) {
+                lock = channel.tryLock(0, Long.MAX_VALUE, shared);
+                if (lock != null) {
+                    return;
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    channel.close();
+                    System.out.println("Another gitlet command is running; try again later.");
+                    System.exit(0);
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw Utils.error("Interrupted while waiting for the repository lock.");
+        }
+    }
+
+    /** Releases the lock. */
+    public void release() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            channel.close();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Serves the repository in the current directory to TcpRemotes over TCP,
+ *  speaking the Protocol. Each client is handled on its own thread, and
+ *  clients are only serialized while a branch is moved or pushed objects
+ *  are stored, which is done under the repository lock like any other
+ *  command that writes. Objects are read without a lock, as they never
+ *  change once written, and are checked with the readers of their kind
+ *  before they are sent. Clients are handled on CommandThreads, which emit
+ *  Flight Recorder events whenever a recording wants them, even one started
+ *  after the server.
+ *  Clients are not authenticated: anyone who can connect may push objects
+ *  and move any branch but the checked-out one, and pushed Commits are
+ *  deserialized by later commands. Pushed objects never replace stored
+ *  ones, and Blobs and chunks must hash to their names. The server
+ *  therefore listens on the loopback address unless the setting
+ *  serve.address names another, which should only be done on a trusted
+ *  network.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Server {
+
+    /** Default port to listen on. */
+    static final int PORT = 9418;
+    /** Default address to listen on, which only lets in clients on this
+     *  machine. */
+    static final String ADDRESS = "127.0.0.1";
+    /** Size of the buffers of each connection. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** The threads that clients are handled on. */
+    private ExecutorService clients;
+
+    /** Creates a server for the repository in the current directory. */
+    public Server() {
+        FlightEvents events = FlightEvents.available() ? new FlightEvents() : null;
+        clients = Executors.newCachedThreadPool(body -> new CommandThread(null, events, body));
+    }
+
+    /** Accepts clients on PORT of the address set by serve.address until
+     *  the process is stopped. A PORT of 0 picks a free port. Used for
+     *  git serve. */
+    public void serve(int port) {
+        String address = new Config().get("serve.address", ADDRESS);
+        try (ServerSocket listener = new ServerSocket(port, 0, InetAddress.getByName(address))) {
+            System.out.println("Serving on port " + listener.getLocalPort() + ".");
+            while (true) {
+                Socket client = listener.accept();
+                clients.execute(() -> handle(client));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    /** Answers the requests of CLIENT until it disconnects. Responses are
+     *  flushed only once no further request is waiting, so a pipelined run
+     *  of requests is answered in as few packets as possible. */
+    private void handle(Socket client) {
+        ObjectBatch pushed = new ObjectBatch(Repository.GITLET_DIR);
+        try (client) {
+            client.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(client.getInputStream(), BUFFER_SIZE));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(client.getOutputStream(), BUFFER_SIZE));
+            for (byte[] frame = Protocol.readFrame(in); frame != null;
+                    frame = Protocol.readFrame(in)) {
+                try {
+                    answer(frame, in, out, pushed);
+                } catch (IOException | IllegalArgumentException | GitletException excp) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    Protocol.frame(bytes, Protocol.ERROR).writeUTF(String.valueOf(excp.getMessage()));
+                    Protocol.send(out, bytes);
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException excp) {
+            //The client went away; there is nobody to tell
+        } finally {
+            pushed.discard();
+        }
+    }
+
+    /** Writes the response to the request FRAME to OUT, reading the further
+     *  pieces of a pushed object from IN. Objects of PUT requests are added
+     *  to PUSHED. */
+    private void answer(byte[] frame, DataInputStream in, DataOutputStream out,
+                        ObjectBatch pushed) throws IOException {
+        DataInputStream request = Protocol.payload(frame, frame[0]);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        switch (frame[0]) {
+            case Protocol.BRANCHES: {
+                Staging s = Utils.readObject(Utils.join(Repository.GITLET_DIR, "staging.txt"),
+                        Staging.class);
+                Map<String, String> branches = s.getBranches();
+                DataOutputStream response = Protocol.frame(bytes, Protocol.OK);
+                response.writeInt(branches.size());
+                for (Map.Entry<String, String> branch : branches.entrySet()) {
+                    response.writeUTF(branch.getKey());
+                    Protocol.writeId(response, branch.getValue());
+                }
+                response.writeUTF(s.getCurrentBranch());
+                break;
+            }
+            case Protocol.HAS: {
+                File folder = Protocol.folder(request.readUTF());
+                Protocol.writeIds(Protocol.frame(bytes, Protocol.OK), Remote.existing(
+                        Repository.GITLET_DIR, folder, Protocol.readIds(request)));
+                break;
+            }
+            case Protocol.MISSING_COMMITS: {
+                List<String> wants = Protocol.readIds(request);
+                List<String> common = Protocol.readIds(request);
+                int depth = request.readInt();
+                Protocol.writeIds(Protocol.frame(bytes, Protocol.OK),
+                        Remote.missingCommits(Repository.GITLET_DIR, wants, common, depth));
+                break;
+            }
+            case Protocol.BLOBS_OF:
+                Protocol.writeIds(Protocol.frame(bytes, Protocol.OK),
+                        Remote.blobsOf(Repository.GITLET_DIR, Protocol.readIds(request)));
+                break;
+            case Protocol.CHUNKS_OF:
+                Protocol.writeIds(Protocol.frame(bytes, Protocol.OK),
+                        Remote.chunksOf(Repository.GITLET_DIR, Protocol.readIds(request)));
+                break;
+            case Protocol.GET: {
+                File folder = Protocol.folder(request.readUTF());
+                for (String id : Protocol.readIds(request)) {
+                    if (folder.equals(Commit.COMMIT_FOLDER)) {
+                        Commit.readCommit(id);
+                    } else if (folder.equals(Blob.BLOB_FOLDER)) {
+                        Blob.readBlob(id);
+                    }
+                    ByteArrayOutputStream object = new ByteArrayOutputStream();
+                    Protocol.writeId(Protocol.frame(object, Protocol.OBJECT), id);
+                    Protocol.sendObject(out, object, Utils.join(folder, id + ".txt"));
+                }
+                return;
+            }
+            case Protocol.PUT: {
+                File folder = Protocol.folder(request.readUTF());
+                String id = Protocol.readId(request);
+                try (OutputStream object = pushed.add(folder, id)) {
+                    Protocol.receiveObject(request, in, object);
+                }
+                return;
+            }
+            case Protocol.END:
+                install(pushed);
+                Protocol.frame(bytes, Protocol.OK);
+                break;
+            case Protocol.UPDATE_BRANCH: {
+                String branch = request.readUTF();
+                String expected = request.readBoolean() ? Protocol.readId(request) : null;
+                String head = Protocol.readId(request);
+                Protocol.frame(bytes, Protocol.OK).writeBoolean(updateBranch(branch, expected, head));
+                break;
+            }
+            default:
+                throw new IOException("unknown request " + frame[0]);
+        }
+        Protocol.send(out, bytes);
+    }
+
+    /** Checks the objects of PUSHED and stores those that are not stored
+     *  yet, adding them to the object filter, all under the repository lock
+     *  so that neither races with gc or other commands. */
+    private synchronized void install(ObjectBatch pushed) {
+        RepositoryLock lock = new RepositoryLock(false);
+        Journal journal = new Journal();
+        try {
+            journal.recover();
+            journal.addObjects(pushed.install());
+            journal.commit();
+        } finally {
+            journal.close();
+            lock.release();
+        }
+    }
+
+    /** Points BRANCH at HEAD if it still points at EXPECTED, which is null
+     *  for a new branch. Returns false if it does not. The checked-out
+     *  branch is never moved, as the working directory would no longer
+     *  match it. */
+    private synchronized boolean updateBranch(String branch, String expected, String head) {
+        RepositoryLock lock = new RepositoryLock(false);
+        Journal journal = new Journal();
+        try {
+            journal.recover();
+            Staging s = Staging.readStaging(journal);
+            if (branch.equals(s.getCurrentBranch())) {
+                throw Utils.error("Cannot push to the branch checked out in the remote.");
+            }
+            String current = s.getBranches().get(branch);
+            if (current == null ? expected != null : !current.equals(expected)) {
+                return false;
+            }
+            s.moveBranch(branch, head);
+            s.saveStaging();
+            journal.commit();
+            return true;
+        } finally {
+            journal.close();
+            lock.release();
+        }
+    }
+}
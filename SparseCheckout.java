@@ -0,0 +1,95 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Represents the sparse-checkout patterns of a repository, kept in
+ *  .gitlet/sparse-checkout one per line. The patterns are globs matched
+ *  against file names, such as "*.java" or "docs-*", and the files matching
+ *  any of them form the cone. Files outside the cone stay tracked by every
+ *  Commit but are never written to, deleted from or looked for in the CWD.
+ *  With no patterns every file is in the cone.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class SparseCheckout {
+
+    /** The file that the patterns are saved in. */
+    static final File SPARSE_FILE = Utils.join(Repository.GITLET_DIR, "sparse-checkout");
+
+    /** The patterns, in the order given. */
+    private ArrayList<String> patterns;
+    /** The matcher of each pattern. */
+    private ArrayList<PathMatcher> matchers;
+
+    /** Reads the patterns of the repository, if it has any. */
+    public SparseCheckout() {
+        this(SPARSE_FILE.isFile() ? lines(Utils.readContentsAsString(SPARSE_FILE)) : List.of());
+    }
+
+    /** Creates the cone of the glob PATTERNS, exiting if one is not a glob. */
+    public SparseCheckout(List<String> patterns) {
+        this.patterns = new ArrayList<>(patterns);
+        matchers = new ArrayList<>();
+        for (String pattern : patterns) {
+            try {
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+            } catch (IllegalArgumentException excp) {
+                System.out.println("Invalid sparse-checkout pattern: " + pattern);
+                System.exit(0);
+            }
+        }
+    }
+
+    /** Returns true if any pattern is set, so that the cone is not everything. */
+    public boolean isSparse() {
+        return !patterns.isEmpty();
+    }
+
+    /** Returns true if the file FILENAME is in the cone. */
+    public boolean contains(String filename) {
+        if (matchers.isEmpty()) {
+            return true;
+        }
+        Path path = Path.of(filename);
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the patterns. */
+    public List<String> patterns() {
+        return patterns;
+    }
+
+    /** Saves the patterns through JOURNAL. With none, the file is left
+     *  empty, which disables the sparse checkout. */
+    public void save(Journal journal) {
+        StringBuilder contents = new StringBuilder();
+        for (String pattern : patterns) {
+            contents.append(pattern).append('\n');
+        }
+        journal.writeRefContents(SPARSE_FILE, contents.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Returns the patterns in TEXT, one per line, without blank lines and
+     *  "#" comments. */
+    private static List<String> lines(String text) {
+        ArrayList<String> lines = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
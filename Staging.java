@@ -1,9 +1,18 @@
 package gitlet;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.text.SimpleDateFormat;
+import jdk.jfr.Event;
 
 /** Represents the current state of the gitlet staging area.
  *  @author Kartik Punia
@@ -11,6 +20,12 @@ import java.text.SimpleDateFormat;
  */
 public class Staging implements Serializable {
 
+    /** Kept fixed so that a staging.txt written by an older version still loads. */
+    private static final long serialVersionUID = -2025961690692811520L;
+    /** Default of merge.memoryBudget, the bytes of file contents that the
+     *  files of a merge, resolved in parallel, may hold at once. */
+    static final long MERGE_MEMORY = 64L << 20;
+
     /** All the files and their corresponding blobs that are tracked in the Commit. */
     private HashMap<String, String> filesAndBlobs;
     /** All the files and their corresponding blobs that are currently in the staging area. */
@@ -23,9 +38,18 @@ public class Staging implements Serializable {
     private HashMap<String, String> branches;
     /** The name of the branch that it is currently on. */
     private String currentBranch;
+    /** The journal that this command's writes go through. */
+    private transient Journal journal;
+    /** The checkout.mode setting, read when first needed. */
+    private transient String checkoutMode;
+    /** The history of the repository, read when first needed. */
+    private transient History history;
+    /** The sparse-checkout cone, read when first needed. */
+    private transient SparseCheckout sparse;
 
     /** Constructor creates the Staging file. */
-    public Staging() {
+    public Staging(Journal journal) {
+        this.journal = journal;
         filesAndBlobs = new HashMap<>();
         stagingArea = new HashMap<>();
         removalStaging = new ArrayList<>();
@@ -38,14 +62,18 @@ public class Staging implements Serializable {
         saveStaging();
     }
 
-    /** Overwrites staging.txt with the most updated staging area. */
+    /** Overwrites staging.txt with the most updated staging area once the
+     *  journal is committed. */
     public void saveStaging() {
-        Utils.writeObject(Utils.join(Repository.GITLET_DIR, "staging.txt"), this);
+        journal.writeRef(Utils.join(Repository.GITLET_DIR, "staging.txt"), this);
     }
 
-    /** Reads staging.txt into an object. */
-    public static Staging readStaging() {
-        return Utils.readObject(Utils.join(Repository.GITLET_DIR, "staging.txt"), Staging.class);
+    /** Reads staging.txt into an object whose writes go through JOURNAL. */
+    public static Staging readStaging(Journal journal) {
+        Staging s = Utils.readObject(Utils.join(Repository.GITLET_DIR, "staging.txt"),
+                Staging.class);
+        s.journal = journal;
+        return s;
     }
 
     /** Adds files to the staging area. Used for git add. */
@@ -58,14 +86,15 @@ public class Staging implements Serializable {
         }
 
         //Checks to see if the CWD version of file is the same as the tracked version
-        if (filesAndBlobs.containsKey(fileName)
-                && Arrays.equals(Utils.readContents(Utils.join(Repository.CWD, fileName)),
-                        Blob.readBlob(filesAndBlobs.get(fileName)).getFile())) {
+        Blob b = new Blob(fileName, journal);
+        String tracked = filesAndBlobs.get(fileName);
+        if (tracked != null && (tracked.equals(b.getName()) || b.getChunks() == null
+                && b.getBuffer().equals(Blob.readBlob(tracked, journal).getBuffer()))) {
             if (stagingArea.containsKey(fileName)) {
                 stagingArea.remove(fileName);
             }
         } else {
-            Blob b = new Blob(fileName);
+            b.saveBlob(journal);
             stagingArea.put(fileName, b.getName());
         }
         if (removalStaging.contains(fileName)) {
@@ -106,9 +135,9 @@ public class Staging implements Serializable {
         }
         Commit c;
         if (otherParent != null) {
-            c = new Commit(message, prevCommit, otherParent, addedFiles, addedBlobs);
+            c = new Commit(message, prevCommit, otherParent, addedFiles, addedBlobs, journal);
         } else {
-            c = new Commit(message, prevCommit, addedFiles, addedBlobs);
+            c = new Commit(message, prevCommit, addedFiles, addedBlobs, journal);
         }
         prevCommit = c.getName();
 
@@ -179,8 +208,13 @@ public class Staging implements Serializable {
         System.out.println("\n=== Staged Files ===");
         String[] staging = stagingArea.keySet().toArray(new String[stagingArea.size()]);
         Arrays.sort(staging);
+        TreeMap<String, String> renames = stagedRenames();
         for (int i = 0; i < staging.length; i++) {
-            System.out.println(staging[i]);
+            if (renames.containsKey(staging[i])) {
+                System.out.println(staging[i] + " (renamed from " + renames.get(staging[i]) + ")");
+            } else {
+                System.out.println(staging[i]);
+            }
         }
 
         System.out.println("\n=== Removed Files ===");
@@ -193,6 +227,26 @@ public class Staging implements Serializable {
                 + "\n=== Untracked Files ===\n\n");
     }
 
+    /** Returns the renames among the staged files (key = new filename,
+     *  value = old filename staged for removal). Helper for git status. */
+    private TreeMap<String, String> stagedRenames() {
+        HashMap<String, String> removed = new HashMap<>();
+        for (String fileName : removalStaging) {
+            removed.put(fileName, filesAndBlobs.get(fileName));
+        }
+        HashMap<String, String> added = new HashMap<>();
+        for (String fileName : stagingArea.keySet()) {
+            if (!filesAndBlobs.containsKey(fileName)) {
+                added.put(fileName, stagingArea.get(fileName));
+            }
+        }
+        if (removed.isEmpty() || added.isEmpty()) {
+            return new TreeMap<>();
+        }
+        Remote.fetchAbsent(removed.values(), journal);
+        return Renames.between(removed, added);
+    }
+
     /** Returns the state of a given file to whatever was in the head commit.
      * Used for git checkout -- [file name]. */
     public void checkout(String filename) {
@@ -201,8 +255,7 @@ public class Staging implements Serializable {
             System.out.println("File does not exist in that commit.");
             System.exit(0);
         }
-        Utils.writeContents(Utils.join(Repository.CWD, filename),
-                Blob.readBlob(files.get(filename)).getFile());
+        checkoutFile(files.get(filename), filename);
     }
 
     /** Returns the state of a given file to whatever was in the given Commit.
@@ -213,8 +266,7 @@ public class Staging implements Serializable {
             System.out.println("File does not exist in that commit.");
             System.exit(0);
         }
-        Utils.writeContents(Utils.join(Repository.CWD, filename),
-                Blob.readBlob(files.get(filename)).getFile());
+        checkoutFile(files.get(filename), filename);
     }
 
     /** Returns the state of the files to that of the given branch.
@@ -235,44 +287,78 @@ public class Staging implements Serializable {
     }
 
     /** Returns the state of the files to that of the given branch.
-     * Helper for git checkout [branch] and git reset. */
+     * Helper for git checkout [branch] and git reset. Only files in the
+     * sparse-checkout cone are looked for, written or deleted. */
     public void checkoutCommit(String newCommit) {
+        long start = Trace.start();
         Commit prevC = Commit.readCommit(prevCommit);
         Commit newC = Commit.readCommit(newCommit);
-        List<String> cwdFiles = Utils.plainFilenamesIn(Repository.CWD);
-        for (int i = 0; i < cwdFiles.size(); i++) {
-            if (!prevC.getFiles().containsKey(cwdFiles.get(i))
-                    && newC.getFiles().containsKey(cwdFiles.get(i))) {
+        HashMap<String, String> prevFiles = prevC.getFiles();
+        HashMap<String, String> newFiles = newC.getFiles();
+        for (String filename : newFiles.keySet()) {
+            if (!prevFiles.containsKey(filename) && sparse().contains(filename)
+                    && Utils.join(Repository.CWD, filename).isFile()) {
                 System.out.println("There is an untracked file in the way; "
                         + "delete it, or add and commit it first.");
             }
         }
 
-        filesAndBlobs = newC.getFiles();
+        filesAndBlobs = newFiles;
         prevCommit = newC.getName();
 
-        String[] addedFiles = newC.getFiles().keySet().toArray(new String[filesAndBlobs.size()]);
-        String[] addedBlobs = new String[addedFiles.length];
-        for (int i = 0; i < addedFiles.length; i++) {
-            addedBlobs[i] = filesAndBlobs.get(addedFiles[i]);
+        ArrayList<String> addedFiles = new ArrayList<>();
+        ArrayList<String> absent = new ArrayList<>();
+        for (Map.Entry<String, String> file : newFiles.entrySet()) {
+            if (sparse().contains(file.getKey())) {
+                addedFiles.add(file.getKey());
+                if (!Utils.join(Blob.BLOB_FOLDER, file.getValue() + ".txt").isFile()) {
+                    absent.add(file.getValue());
+                }
+            }
         }
+        journal.addObjects(Remote.fetchPromised(absent));
 
-        for (int i = 0; i < cwdFiles.size(); i++) {
-            if (prevC.getFiles().containsKey(cwdFiles.get(i))
-                    && !newC.getFiles().containsKey(cwdFiles.get(i))) {
-                Utils.restrictedDelete(cwdFiles.get(i));
+        for (String filename : prevFiles.keySet()) {
+            if (!newFiles.containsKey(filename) && sparse().contains(filename)) {
+                Utils.restrictedDelete(Utils.join(Repository.CWD, filename));
             }
         }
 
-        for (int i = 0; i < addedFiles.length; i++) {
-            Utils.writeContents(Utils.join(Repository.CWD, addedFiles[i]),
-                    Blob.readBlob(addedBlobs[i]).getFile());
+        for (String filename : addedFiles) {
+            checkoutFile(newFiles.get(filename), filename);
         }
 
         stagingArea = new HashMap<>();
         removalStaging = new ArrayList<>();
 
         saveStaging();
+        Trace.time("Staging.checkoutCommit", start);
+    }
+
+    /** Puts the file of the Blob named ID in the CWD as FILENAME. With the
+     *  setting checkout.mode=link the file is linked to the object store
+     *  instead of written, which suits trees that are only read, such as
+     *  build trees; such files are read-only and are replaced, never written
+     *  through, by later checkouts. Helper for git checkout. */
+    public void checkoutFile(String id, String filename) {
+        Event event = FlightEvents.begin(FlightEvents.CHECKOUT_WRITE);
+        Blob b = Blob.readBlob(id, journal);
+        if (checkoutMode().equals("link")) {
+            b.linkTo(Utils.join(Repository.CWD, filename));
+        } else {
+            b.writeTo(Utils.join(Repository.CWD, filename));
+        }
+        if (event != null) {
+            FlightEvents.commit(event, filename, id, b.length(), checkoutMode);
+        }
+    }
+
+    /** Returns the checkout.mode setting. */
+    private String checkoutMode() {
+        if (checkoutMode == null) {
+            checkoutMode = new Config().get("checkout.mode", "copy");
+        }
+        return checkoutMode;
     }
 
     /** Creates a new branch with the given name. Used for git branch. */
@@ -286,6 +372,32 @@ public class Staging implements Serializable {
         saveStaging();
     }
 
+    /** Returns the number of branches. */
+    public int branchCount() {
+        return branches.size();
+    }
+
+    /** Returns all the branches and their corresponding Commits. */
+    public HashMap<String, String> getBranches() {
+        return branches;
+    }
+
+    /** Returns the name of the current branch. */
+    public String getCurrentBranch() {
+        return currentBranch;
+    }
+
+    /** Points BRANCH at the Commit HEAD, creating it if needed. If BRANCH is
+     *  the current branch, the head Commit moves with it while the working
+     *  files are left alone. Used when a branch is pushed to this repository. */
+    public void moveBranch(String branch, String head) {
+        branches.put(branch, head);
+        if (branch.equals(currentBranch)) {
+            prevCommit = head;
+            filesAndBlobs = Commit.readCommit(head).getFiles();
+        }
+    }
+
     /** Removes a branch given its name. Used for git rm-branch. */
     public void rmBranch(String name) {
         if (!branches.containsKey(name)) {
@@ -302,6 +414,336 @@ public class Staging implements Serializable {
         saveStaging();
     }
 
+    /** Copies BRANCH of the remote REMOTENAME into the branch
+     *  REMOTENAME/BRANCH. Used for git fetch. */
+    public void fetch(String remoteName, String branch) {
+        ArrayList<String> heads = new ArrayList<>(branches.values());
+        heads.add(prevCommit);
+        Remote remote = Remote.open(remoteName, false);
+        String head;
+        try {
+            head = remote.fetch(branch, heads, journal, history(), !promisor(remoteName), 0);
+        } finally {
+            remote.close();
+        }
+        if (head == null) {
+            System.out.println("That remote does not have that branch.");
+            System.exit(0);
+        }
+        branches.put(remoteName + "/" + branch, head);
+
+        saveStaging();
+    }
+
+    /** Copies every branch of the remote REMOTENAME into the branches
+     *  REMOTENAME/BRANCH and checks out the remote's main branch as main.
+     *  Only the last DEPTH Commits of each branch are copied if DEPTH > 0.
+     *  Used for git clone. */
+    public void cloneRemote(String remoteName, int depth) {
+        Remote remote = Remote.open(remoteName, false);
+        try {
+            for (String branch : remote.branches().keySet()) {
+                ArrayList<String> heads = new ArrayList<>(branches.values());
+                branches.put(remoteName + "/" + branch,
+                        remote.fetch(branch, heads, journal, history(), !promisor(remoteName),
+                                depth));
+            }
+        } finally {
+            remote.close();
+        }
+        String head = branches.get(remoteName + "/" + currentBranch);
+        if (head != null) {
+            branches.put(currentBranch, head);
+            checkoutCommit(head);
+        }
+
+        saveStaging();
+    }
+
+    /** Fetches DEPTH more Commits of history from the remote REMOTENAME
+     *  behind the boundary of a shallow clone, or all of it if DEPTH is 0.
+     *  Used for git fetch --deepen and --unshallow. */
+    public void deepen(String remoteName, int depth) {
+        if (!history().isShallow()) {
+            System.out.println("This repository is not shallow.");
+            System.exit(0);
+        }
+        Remote remote = Remote.open(remoteName, false);
+        try {
+            //No haves: the remote would take the Commits past our boundary as common
+            history.update(remote.fetch(history.beyondBoundary(), List.of(), journal,
+                    !promisor(remoteName), depth), journal);
+        } finally {
+            remote.close();
+        }
+    }
+
+    /** Returns the sparse-checkout cone of the repository. */
+    private SparseCheckout sparse() {
+        if (sparse == null) {
+            sparse = new SparseCheckout();
+        }
+        return sparse;
+    }
+
+    /** Changes or prints the sparse-checkout patterns as ACTION says: "set"
+     *  replaces them with PATTERNS, "add" adds PATTERNS, "disable" removes
+     *  them all and "list" prints them. The files of the head Commit that
+     *  enter the cone are then written and those that leave it deleted.
+     *  Used for git sparse-checkout. */
+    public void sparseCheckout(String action, List<String> patterns) {
+        if (action.equals("list")) {
+            for (String pattern : sparse().patterns()) {
+                System.out.println(pattern);
+            }
+            return;
+        }
+        if (!stagingArea.isEmpty() || !removalStaging.isEmpty()) {
+            System.out.println("You have uncommitted changes.");
+            System.exit(0);
+        }
+        ArrayList<String> updated = new ArrayList<>();
+        if (action.equals("add")) {
+            updated.addAll(sparse().patterns());
+        }
+        if (!action.equals("disable")) {
+            for (String pattern : patterns) {
+                if (!updated.contains(pattern)) {
+                    updated.add(pattern);
+                }
+            }
+        }
+        SparseCheckout before = sparse();
+        sparse = new SparseCheckout(updated);
+        sparse.save(journal);
+        ArrayList<String> absent = new ArrayList<>();
+        for (Map.Entry<String, String> file : filesAndBlobs.entrySet()) {
+            if (!before.contains(file.getKey()) && sparse.contains(file.getKey())
+                    && !Utils.join(Blob.BLOB_FOLDER, file.getValue() + ".txt").isFile()) {
+                absent.add(file.getValue());
+            }
+        }
+        journal.addObjects(Remote.fetchPromised(absent));
+        for (Map.Entry<String, String> file : filesAndBlobs.entrySet()) {
+            boolean was = before.contains(file.getKey());
+            boolean is = sparse.contains(file.getKey());
+            if (is && !was) {
+                checkoutFile(file.getValue(), file.getKey());
+            } else if (was && !is) {
+                Utils.restrictedDelete(Utils.join(Repository.CWD, file.getKey()));
+            }
+        }
+    }
+
+    /** Stores the staging area and the tracked files of the CWD as a new
+     *  stash entry, and returns both to the head Commit. Only the files
+     *  that differ from the head Commit get new Blobs or are written back.
+     *  Used for git stash push. */
+    public void stashPush() {
+        HashMap<String, String> index = index();
+        HashMap<String, String> working = workingFiles(index);
+        for (Map.Entry<String, String> file : working.entrySet()) {
+            if (file.getValue() == null) {
+                file.setValue(workingBlob(file.getKey(), index.get(file.getKey())));
+            }
+        }
+        boolean staged = !stagingArea.isEmpty() || !removalStaging.isEmpty();
+        if (!staged && working.equals(filesAndBlobs)) {
+            System.out.println("No local changes to save.");
+            System.exit(0);
+        }
+        String head = prevCommit.substring(0, Blame.SHORT_ID) + " "
+                + Commit.readCommit(prevCommit).getMessage();
+        String indexCommit = null;
+        if (staged) {
+            indexCommit = commitFiles("index on " + currentBranch + ": " + head, null, index);
+        }
+        Stash stash = new Stash();
+        stash.push(commitFiles("WIP on " + currentBranch + ": " + head, indexCommit, working));
+        stash.save(journal);
+
+        TreeSet<String> changed = CommitGraph.changedFiles(filesAndBlobs, working);
+        Remote.fetchAbsent(changed.stream().map(filesAndBlobs::get).toList(), journal);
+        for (String filename : changed) {
+            if (!sparse().contains(filename)) {
+                continue;
+            }
+            if (filesAndBlobs.containsKey(filename)) {
+                checkoutFile(filesAndBlobs.get(filename), filename);
+            } else {
+                Utils.restrictedDelete(Utils.join(Repository.CWD, filename));
+            }
+        }
+        stagingArea = new HashMap<>();
+        removalStaging = new ArrayList<>();
+        saveStaging();
+    }
+
+    /** Puts the files and staged changes of stash entry INDEX back and
+     *  drops it. Only the files the entry changed are looked at; each must
+     *  be as in the head Commit, and must not have been changed by the head
+     *  Commit since the entry was made. Used for git stash pop. */
+    public void stashPop(int index) {
+        Stash stash = new Stash();
+        Commit stashed = Commit.readCommit(stash.get(index));
+        if (!stagingArea.isEmpty() || !removalStaging.isEmpty()) {
+            System.out.println("You have uncommitted changes.");
+            System.exit(0);
+        }
+        HashMap<String, String> base = Commit.readCommit(stashed.getPrevCommit()).getFiles();
+        HashMap<String, String> working = stashed.getFiles();
+        HashMap<String, String> staged = stashed.getPrevCommit2() == null ? base
+                : Commit.readCommit(stashed.getPrevCommit2()).getFiles();
+        TreeSet<String> changed = CommitGraph.changedFiles(base, working);
+        for (String filename : changed) {
+            String head = filesAndBlobs.get(filename);
+            if (!Objects.equals(head, base.get(filename))
+                    && !Objects.equals(head, working.get(filename))) {
+                System.out.println("The stash conflicts with the head commit.");
+                System.exit(0);
+            }
+            File path = Utils.join(Repository.CWD, filename);
+            if (!sparse().contains(filename)) {
+                continue;
+            } else if (head == null && path.isFile()) {
+                System.out.println("There is an untracked file in the way; "
+                        + "delete it, or add and commit it first.");
+                System.exit(0);
+            } else if (head != null && !Blob.readBlob(head, journal).sameAs(path)) {
+                System.out.println("You have uncommitted changes.");
+                System.exit(0);
+            }
+        }
+
+        for (String filename : changed) {
+            if (!sparse().contains(filename)) {
+                continue;
+            }
+            if (working.containsKey(filename)) {
+                checkoutFile(working.get(filename), filename);
+            } else {
+                Utils.restrictedDelete(Utils.join(Repository.CWD, filename));
+            }
+        }
+        for (String filename : CommitGraph.changedFiles(base, staged)) {
+            String blob = staged.get(filename);
+            if (blob != null && !blob.equals(filesAndBlobs.get(filename))) {
+                stagingArea.put(filename, blob);
+            } else if (blob == null && filesAndBlobs.containsKey(filename)) {
+                removalStaging.add(filename);
+            }
+        }
+        stash.remove(index);
+        stash.save(journal);
+        saveStaging();
+    }
+
+    /** Prints each stash entry with its index, newest first. Used for git
+     *  stash list. */
+    public void stashList() {
+        List<String> entries = new Stash().entries();
+        for (int i = 0; i < entries.size(); i++) {
+            System.out.println("stash@{" + i + "}: " + Commit.readCommit(entries.get(i)).getMessage());
+        }
+    }
+
+    /** Drops stash entry INDEX without putting it back. Used for git stash drop. */
+    public void stashDrop(int index) {
+        Stash stash = new Stash();
+        stash.get(index);
+        stash.remove(index);
+        stash.save(journal);
+    }
+
+    /** Returns the Blob of FILENAME as it is in the CWD: TRACKED if the file
+     *  still matches it, or else a new Blob, which is saved. */
+    private String workingBlob(String filename, String tracked) {
+        Blob b = new Blob(filename, journal);
+        if (tracked != null && (tracked.equals(b.getName()) || b.getChunks() == null
+                && b.getBuffer().equals(Blob.readBlob(tracked, journal).getBuffer()))) {
+            return tracked;
+        }
+        b.saveBlob(journal);
+        return b.getName();
+    }
+
+    /** Makes a Commit of FILES whose parents are the head Commit and, unless
+     *  it is null, OTHERPARENT, and returns its name. */
+    private String commitFiles(String message, String otherParent, HashMap<String, String> files) {
+        String[] names = files.keySet().toArray(new String[files.size()]);
+        String[] blobs = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            blobs[i] = files.get(names[i]);
+        }
+        Commit c;
+        if (otherParent != null) {
+            c = new Commit(message, prevCommit, otherParent, names, blobs, journal);
+        } else {
+            c = new Commit(message, prevCommit, names, blobs, journal);
+        }
+        return c.getName();
+    }
+
+    /** Returns the history of the repository. */
+    private History history() {
+        if (history == null) {
+            history = new History();
+        }
+        return history;
+    }
+
+    /** Returns true if REMOTENAME is the promisor remote of a partial clone,
+     *  from which Blobs are fetched only when they are needed. */
+    private boolean promisor(String remoteName) {
+        return remoteName.equals(new Config().get("core.promisor", null));
+    }
+
+    /** Writes the branches BRANCHNAMES to the bundle FILE, leaving out the
+     *  history of the branches or Commits EXCLUDES. Used for git bundle create. */
+    public void createBundle(File file, List<String> branchNames, List<String> excludes) {
+        LinkedHashMap<String, String> refs = new LinkedHashMap<>();
+        for (String name : branchNames) {
+            if (!branches.containsKey(name)) {
+                System.out.println("A branch with that name does not exist.");
+                System.exit(0);
+            }
+            refs.put(name, branches.get(name));
+        }
+        ArrayList<String> excluded = new ArrayList<>();
+        for (String name : excludes) {
+            excluded.add(branches.containsKey(name) ? branches.get(name) : Main.commitChecker(name));
+        }
+        new Bundle(file).create(refs, excluded, journal);
+    }
+
+    /** Stores the objects of the bundle FILE and copies each of its branches
+     *  into the branch bundle/BRANCH. Used for git bundle unbundle. */
+    public void unbundle(File file) {
+        for (Map.Entry<String, String> ref : new Bundle(file).unbundle(journal).entrySet()) {
+            branches.put("bundle/" + ref.getKey(), ref.getValue());
+        }
+
+        saveStaging();
+    }
+
+    /** Sends the current head Commit to BRANCH of the remote REMOTENAME.
+     *  Used for git push. */
+    public void push(String remoteName, String branch) {
+        Remote remote = Remote.open(remoteName, true);
+        try {
+            remote.push(branch, prevCommit, journal);
+        } finally {
+            remote.close();
+        }
+    }
+
+    /** Fetches BRANCH of the remote REMOTENAME and merges it into the current
+     *  branch. Used for git pull. */
+    public void pull(String remoteName, String branch) {
+        fetch(remoteName, branch);
+        merge(remoteName + "/" + branch);
+    }
+
     /** Checks out a given Commit and moves the branch head to this Commit.
      * Used for git reset. */
     public void reset(String newCommit) {
@@ -314,25 +756,48 @@ public class Staging implements Serializable {
         ArrayList<Commit> commits = new ArrayList<>();
         commits.add(Commit.readCommit(prevCommit));
         for (int i = 0; i < 5; i++) {
-            Commit c = commits.get(i);
-            if (c.getName().equals(Utils.sha1("commit0"))) {
+            List<String> parents = history().parents(commits.get(i));
+            if (parents.isEmpty()) {
                 break;
             } else {
-                commits.add(Commit.readCommit(c.getPrevCommit()));
+                commits.add(Commit.readCommit(parents.get(0)));
             }
         }
 
         for (Commit history : commits) {
-            System.out.println("===");
-            System.out.println("commit " + history.getName());
-            Date t = history.getTimestamp();
-            SimpleDateFormat format = new SimpleDateFormat("EEE MMM d kk:mm:ss yyyy Z");
-            System.out.println("Date: " + format.format(t));
-            System.out.println(history.getMessage());
-            System.out.println();
+            printLog(history);
         }
     }
 
+    /** Prints every Commit, from the head Commit back along first parents,
+     *  that changed FILENAME. Entries missing from the commit graph are
+     *  worked out but not saved, as log only holds a shared lock. Used for
+     *  git log -- filename. */
+    public void log(String filename) {
+        CommitGraph graph = new CommitGraph(history());
+        for (Commit c : graph.changes(prevCommit, filename)) {
+            printLog(c);
+        }
+        graph.close();
+    }
+
+    /** Prints the log entry of the Commit C. */
+    private void printLog(Commit c) {
+        System.out.println("===");
+        System.out.println("commit " + c.getName());
+        Date t = c.getTimestamp();
+        SimpleDateFormat format = new SimpleDateFormat("EEE MMM d kk:mm:ss yyyy Z");
+        System.out.println("Date: " + format.format(t));
+        System.out.println(c.getMessage());
+        System.out.println();
+    }
+
+    /** Prints each line of FILENAME in the head Commit with the Commit that
+     *  last changed it. Used for git blame. */
+    public void blame(String filename) {
+        new Blame(history(), journal).print(prevCommit, filename);
+    }
+
     /** Prints out all Commits in the commits folder. Used for git global-log. */
     public void globalLog() {
         ArrayList<Commit> commits = new ArrayList<>();
@@ -344,19 +809,110 @@ public class Staging implements Serializable {
         }
 
         for (Commit history : commits) {
-            System.out.println("===");
-            System.out.println("commit " + history.getName());
-            Date t = history.getTimestamp();
-            SimpleDateFormat format = new SimpleDateFormat("EEE MMM d kk:mm:ss yyyy Z");
-            System.out.println("Date: " + format.format(t));
-            System.out.println(history.getMessage());
-            System.out.println();
+            printLog(history);
+        }
+    }
+
+    /** Prints the changes between two versions of the tracked files. With no
+     *  commits, compares the index with the CWD, or the head Commit with the
+     *  index if CACHED. With one commit, compares it with the CWD, and with two,
+     *  compares them with each other. Used for git diff. */
+    public void diff(boolean cached, boolean stat, String c1, String c2) {
+        HashMap<String, String> before;
+        HashMap<String, String> after;
+        if (c1 != null && c2 != null) {
+            before = Commit.readCommit(c1).getFiles();
+            after = Commit.readCommit(c2).getFiles();
+        } else if (c1 != null) {
+            before = Commit.readCommit(c1).getFiles();
+            after = workingFiles(index());
+        } else if (cached) {
+            before = filesAndBlobs;
+            after = index();
+        } else {
+            before = index();
+            after = workingFiles(before);
+        }
+        new Diff(stat, journal).compareTrees(before, after);
+    }
+
+    /** Returns the files of the next Commit as it would be made right now. */
+    private HashMap<String, String> index() {
+        HashMap<String, String> index = new HashMap<>(filesAndBlobs);
+        index.putAll(stagingArea);
+        for (String removed : removalStaging) {
+            index.remove(removed);
+        }
+        return index;
+    }
+
+    /** Returns the files of TRACKED that are still in the CWD. A file that
+     *  matches its Blob in TRACKED keeps that Blob, so that it is not read
+     *  again or diffed; the others are mapped to null so that their contents
+     *  are read from the CWD. Files outside the sparse-checkout cone keep
+     *  their Blobs, as if unchanged. While a Watcher runs, so do the files it
+     *  has seen no change to since they were last found to match their
+     *  Blobs, without being looked at, and the clean list is saved again. */
+    private HashMap<String, String> workingFiles(HashMap<String, String> tracked) {
+        Watcher watcher = Watcher.sync();
+        Map<String, String> clean = watcher == null ? Map.of() : watcher.clean();
+        HashMap<String, String> verified = new HashMap<>();
+        HashMap<String, String> working = new HashMap<>();
+        for (Map.Entry<String, String> file : tracked.entrySet()) {
+            String fileName = file.getKey();
+            String blob = file.getValue();
+            if (!sparse().contains(fileName)) {
+                working.put(fileName, blob);
+                continue;
+            }
+            boolean known = blob.equals(clean.get(fileName));
+            if (watcher != null) {
+                Trace.cache("watched files", known);
+            }
+            File path = Utils.join(Repository.CWD, fileName);
+            if (known || path.isFile() && Blob.readBlob(blob, journal).sameAs(path)) {
+                working.put(fileName, blob);
+                verified.put(fileName, blob);
+            } else if (path.isFile()) {
+                working.put(fileName, null);
+            }
+        }
+        if (watcher != null) {
+            watcher.saveClean(verified);
+        }
+        return working;
+    }
+
+    /** Deletes the Commits and Blobs that no branch or staged file refers to
+     *  and that are older than GRACE milliseconds, and then writes the commit
+     *  graph of the branches anew. Used for git gc --prune. */
+    public void gc(long grace) {
+        ArrayList<String> commitRoots = new ArrayList<>(branches.values());
+        commitRoots.add(prevCommit);
+        commitRoots.addAll(new Stash().entries());
+        ArrayList<String> blobRoots = new ArrayList<>(stagingArea.values());
+        blobRoots.addAll(filesAndBlobs.values());
+
+        GarbageCollector collector = new GarbageCollector();
+        collector.mark(commitRoots, blobRoots);
+        collector.sweep(grace);
+        journal.dropObjectFilter();
+        Blame.clearCache();
+        CommitGraph.clear();
+        CommitGraph graph = new CommitGraph(history());
+        for (String head : branches.values()) {
+            graph.cover(head);
         }
+        graph.save();
+        System.out.println("Removed " + collector.commitsDeleted() + " commits, "
+                + collector.blobsDeleted() + " blobs and " + collector.chunksDeleted() + " chunks.");
     }
 
-    /** Merges a given branch into the current branch. Used for git merge. */
+    /** Merges a given branch into the current branch. Used for git merge.
+     *  The merge is planned in memory first and then applied in one pass,
+     *  so the CWD is listed once and the staging area written once, by the
+     *  merge Commit. */
     public void merge(String givenBranch) {
-        boolean conflicted = false;
         mergeErrorChecks(givenBranch);
         Commit givenCommit = Commit.readCommit(branches.get(givenBranch));
         Commit currentCommit = Commit.readCommit(prevCommit);
@@ -364,94 +920,243 @@ public class Staging implements Serializable {
         if (mergeAncestors(givenCommit, currentCommit, splitpoint, givenBranch)) {
             return;
         }
-        //Merging
-        List<String> splitFilesList = Arrays.asList(splitpoint.getFiles().keySet()
-                .toArray(new String[splitpoint.getFiles().size()]));
-        for (int i = 0; i < splitFilesList.size(); i++) {
-            byte[] s = Blob.readBlob(splitpoint.getFiles().get(splitFilesList.get(i))).getFile();
-            String gS = givenCommit.getFiles().get(splitFilesList.get(i));
-            String cS = currentCommit.getFiles().get(splitFilesList.get(i));
-            byte[] g = null;
-            byte[] c = null;
-            if (gS != null) {
-                g = Blob.readBlob(gS).getFile();
-            }
-            if (cS != null) {
-                c = Blob.readBlob(cS).getFile();
-            }
-            if (g == null && c == null) {
-                continue;
-            } else if (g != null && c == null) {
-                if (Arrays.equals(g, s)) {
-                    continue;
-                } else {
-                    conflict(c, g, splitFilesList.get(i)); // Conflict - Changed in g, not in c
-                    conflicted = true;
-                }
-            } else if (g == null && c != null) {
-                if (Arrays.equals(c, s)) {
-                    removeStaging(splitFilesList.get(i)); // Need to remove the file
-                } else {
-                    conflict(c, g, splitFilesList.get(i)); // Conflict - Changed in c, not in g
-                    conflicted = true;
+        MergePlan plan = planMerge(splitpoint.getFiles(), givenCommit.getFiles(),
+                currentCommit.getFiles());
+        applyMerge(plan);
+        commitStaging("Merged " + givenBranch + " into "
+                + currentBranch + ".", givenCommit.getName()); // Commits and saves staging
+        if (!plan.conflicts().isEmpty()) {
+            System.out.println("Encountered a merge conflict.");
+        }
+    }
+
+    /** Returns what a merge does to each file, given the files SPLIT, GIVEN
+     *  and CURRENT of the split point and of the two branches. Nothing is
+     *  written. The Blobs that a partial clone lacks are fetched in two
+     *  batches, one for rename detection and one for the files that must be
+     *  compared. The files are then decided in parallel, and the decisions are then added to the plan one by one in
+     *  order of file name. Helper for git merge. */
+    public MergePlan planMerge(HashMap<String, String> split, HashMap<String, String> given,
+                               HashMap<String, String> current) {
+        MergePlan plan = new MergePlan();
+        HashMap<String, String> s = new HashMap<>(split);
+        HashMap<String, String> g = new HashMap<>(given);
+        HashMap<String, String> c = new HashMap<>(current);
+        TreeSet<String> renamed = new TreeSet<>();
+        renameCandidates(s, g, renamed);
+        renameCandidates(s, c, renamed);
+        Remote.fetchAbsent(renamed, journal);
+        mergeRenames(s, g, c, plan);
+        TreeSet<String> filenames = new TreeSet<>(s.keySet());
+        filenames.addAll(g.keySet());
+        TreeSet<String> compared = new TreeSet<>();
+        for (String filename : filenames) {
+            TreeSet<String> versions = new TreeSet<>();
+            for (String blob : new String[] {s.get(filename), g.get(filename), c.get(filename)}) {
+                if (blob != null) {
+                    versions.add(blob);
                 }
-            } else if (Arrays.equals(g, s)) {
-                continue;
-            } else if (!Arrays.equals(g, s) && Arrays.equals(c, s)) {
-                checkout(givenCommit, splitFilesList.get(i)); // Replace currFile with givenFile
-                addStaging(splitFilesList.get(i)); // Stage it automatically
-            } else if (Arrays.equals(g, c)) {
-                continue;
-            } else if (!Arrays.equals(g, c)) {
-                conflict(c, g, splitFilesList.get(i)); // Conflict - Changed in different ways
-                conflicted = true;
-            }
-        }
-        String[] givenFiles = givenCommit.getFiles().keySet()
-                .toArray(new String[givenCommit.getFiles().size()]);
-        for (int i = 0; i < givenFiles.length; i++) {
-            byte[] g = Blob.readBlob(givenCommit.getFiles().get(givenFiles[i])).getFile();
-            String cS = currentCommit.getFiles().get(givenFiles[i]);
-            byte[] c = null;
-            if (splitFilesList.contains(givenFiles[i])) {
-                continue;
-            } else if (cS != null) {
-                c = Blob.readBlob(cS).getFile();
             }
-            if (c == null) {
-                checkout(givenCommit, givenFiles[i]); // Adds givenFile
-                addStaging(givenFiles[i]); // Stage it automatically
-            } else if (Arrays.equals(g, c)) {
-                continue;
+            if (versions.size() > 1) {
+                compared.addAll(versions);
+            }
+        }
+        Remote.fetchAbsent(compared, journal);
+        MemoryBudget budget = mergeBudget();
+        List<Consumer<MergePlan>> decisions = CommandThread.parallel(() -> filenames
+                .parallelStream()
+                .map(filename -> planFile(filename, s.get(filename), g.get(filename),
+                        c.get(filename), budget))
+                .collect(Collectors.toList()));
+        for (Consumer<MergePlan> decision : decisions) {
+            if (decision != null) {
+                decision.accept(plan);
+            }
+        }
+        return plan;
+    }
+
+    /** Returns what a merge does to FILENAME, whose Blobs at the split
+     *  point and on the given and current branches are SS, GS and CS, any of
+     *  which may be null, as a change to a MergePlan, or null if the file is
+     *  kept. Only reads, so files can be decided in parallel. Contents
+     *  compared are held against BUDGET. */
+    private Consumer<MergePlan> planFile(String filename, String sS, String gS, String cS,
+                                         MemoryBudget budget) {
+        if (sS == null) {
+            if (cS == null) {
+                return plan -> plan.take(filename, gS); // Adds givenFile
+            } else if (!Blob.sameContents(gS, cS, budget)) {
+                return plan -> plan.conflict(filename, cS, gS); // Conflict - Changed in different ways
+            }
+        } else if (gS == null && cS == null) {
+            return null;
+        } else if (cS == null) {
+            if (!Blob.sameContents(gS, sS, budget)) {
+                return plan -> plan.conflict(filename, null, gS); // Conflict - Changed in g, not in c
+            }
+        } else if (gS == null) {
+            if (Blob.sameContents(cS, sS, budget)) {
+                return plan -> plan.delete(filename); // Need to remove the file
             } else {
-                conflict(c, g, givenFiles[i]); // Conflict - Changed in different ways
-                conflicted = true;
+                return plan -> plan.conflict(filename, cS, null); // Conflict - Changed in c, not in g
             }
+        } else if (Blob.sameContents(gS, sS, budget)) {
+            return null;
+        } else if (Blob.sameContents(cS, sS, budget)) {
+            return plan -> plan.take(filename, gS); // Replace currFile with givenFile
+        } else if (!Blob.sameContents(gS, cS, budget)) {
+            return plan -> plan.conflict(filename, cS, gS); // Conflict - Changed in different ways
         }
-        commitStaging("Merged " + givenBranch + " into "
-                + currentBranch + ".", givenCommit.getName()); // Commits and saves staging
-        if (conflicted) {
-            System.out.println("Encountered a merge conflict.");
+        return null;
+    }
+
+    /** Adds to BLOBS the Blobs that Renames.between(BEFORE, AFTER) reads:
+     *  those of the removed and of the added files, if there are both. */
+    private static void renameCandidates(HashMap<String, String> before,
+                                         HashMap<String, String> after, TreeSet<String> blobs) {
+        ArrayList<String> removed = new ArrayList<>();
+        ArrayList<String> added = new ArrayList<>();
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!after.containsKey(entry.getKey())) {
+                removed.add(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, String> entry : after.entrySet()) {
+            if (!before.containsKey(entry.getKey())) {
+                added.add(entry.getValue());
+            }
+        }
+        if (!removed.isEmpty() && !added.isEmpty()) {
+            blobs.addAll(removed);
+            blobs.addAll(added);
         }
     }
 
-    /** Creates a conflicted version of a file. Helper for git merge. */
-    public void conflict(byte[] current, byte[] given, String filename) {
-        File filePath = Utils.join(Repository.CWD, filename);
+    /** Carries renames made on one side of a merge over to the other side, so
+     *  that a file renamed on one branch and edited on the other is merged
+     *  under its new name instead of as a deletion plus an addition. SPLIT,
+     *  GIVEN and CURRENT are the files of the three Commits and are updated
+     *  in place. A file of the current branch that must move is moved by
+     *  PLAN. Helper for git merge. */
+    public void mergeRenames(HashMap<String, String> split, HashMap<String, String> given,
+                             HashMap<String, String> current, MergePlan plan) {
+        TreeMap<String, String> givenRenames = Renames.between(split, given);
+        TreeMap<String, String> currentRenames = Renames.between(split, current);
+        HashSet<String> renamedByCurrent = new HashSet<>(currentRenames.values());
+        for (Map.Entry<String, String> rename : givenRenames.entrySet()) {
+            String oldName = rename.getValue();
+            String newName = rename.getKey();
+            if (renamedByCurrent.contains(oldName) || !current.containsKey(oldName)
+                    || current.containsKey(newName)) {
+                continue;
+            }
+            split.put(newName, split.remove(oldName));
+            String blob = current.remove(oldName);
+            plan.take(newName, blob);
+            plan.delete(oldName);
+            current.put(newName, blob);
+        }
+        HashSet<String> renamedByGiven = new HashSet<>(givenRenames.values());
+        for (Map.Entry<String, String> rename : currentRenames.entrySet()) {
+            String oldName = rename.getValue();
+            String newName = rename.getKey();
+            if (renamedByGiven.contains(oldName) || !given.containsKey(oldName)
+                    || given.containsKey(newName)) {
+                continue;
+            }
+            split.put(newName, split.remove(oldName));
+            given.put(newName, given.remove(oldName));
+        }
+    }
 
-        if (current != null) {
-            Utils.writeContents(filePath, current);
+    /** Carries out PLAN on the CWD and the staging area without saving
+     *  the staging area. Blobs that a partial clone lacks are fetched in
+     *  one batch first. Taken and conflicted files are written in parallel,
+     *  streamed from their Blobs rather than held in memory; the
+     *  conflicted versions are then saved and everything staged in order of
+     *  file name. Taken and deleted files outside the sparse-checkout cone
+     *  are only staged, while conflicted ones are written wherever they are,
+     *  so that they can be resolved. Helper for git merge. */
+    public void applyMerge(MergePlan plan) {
+        TreeSet<String> needed = new TreeSet<>(plan.taken().values());
+        for (String[] blobs : plan.conflicts().values()) {
+            for (String blob : blobs) {
+                if (blob != null) {
+                    needed.add(blob);
+                }
+            }
+        }
+        Remote.fetchAbsent(needed, journal);
+        for (String filename : plan.deleted()) {
+            stagingArea.remove(filename);
+            if (filesAndBlobs.containsKey(filename)) {
+                removalStaging.add(filename);
+                if (sparse().contains(filename)) {
+                    Utils.restrictedDelete(Utils.join(Repository.CWD, filename));
+                }
+            }
+        }
+        checkoutMode();
+        SparseCheckout cone = sparse();
+        CommandThread.parallel(() -> {
+            plan.taken().entrySet().parallelStream()
+                    .filter(file -> cone.contains(file.getKey()))
+                    .forEach(file -> checkoutFile(file.getValue(), file.getKey()));
+            plan.conflicts().entrySet().parallelStream()
+                    .forEach(file -> conflict(file.getValue()[0], file.getValue()[1],
+                            file.getKey()));
+        });
+        for (Map.Entry<String, String> file : plan.taken().entrySet()) {
+            stage(file.getKey(), file.getValue());
         }
-        String firstHalf = "<<<<<<< HEAD\n" + Utils.readContentsAsString(filePath) + "=======\n";
-        if (given != null) {
-            Utils.writeContents(filePath, given);
+        for (String filename : plan.conflicts().keySet()) {
+            Blob b = new Blob(filename, journal);
+            b.saveBlob(journal);
+            stage(filename, b.getName());
+        }
+    }
+
+    /** Returns the budget for the file contents held by a merge. */
+    private MemoryBudget mergeBudget() {
+        return new MemoryBudget(new Config().getLong("merge.memoryBudget", MERGE_MEMORY));
+    }
+
+    /** Stages BLOB as the contents of FILENAME, unless it is what the head
+     *  Commit already tracks. */
+    private void stage(String filename, String blob) {
+        if (blob.equals(filesAndBlobs.get(filename))) {
+            stagingArea.remove(filename);
         } else {
-            Utils.writeContents(filePath, "");
+            stagingArea.put(filename, blob);
         }
-        Utils.writeContents(filePath, firstHalf
-                + Utils.readContentsAsString(filePath) + ">>>>>>>\n");
+        removalStaging.remove(filename);
+    }
 
-        addStaging(filename);
+    /** Writes the conflicted version of FILENAME between the Blobs CURRENT
+     *  and GIVEN, either of which is null if the file is absent on that
+     *  side. Both files are streamed into place rather than held in memory.
+     *  Helper for git merge. */
+    public void conflict(String current, String given, String filename) {
+        File filePath = Utils.join(Repository.CWD, filename);
+        filePath.delete();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath))) {
+            out.write("<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8));
+            if (current != null) {
+                try (InputStream in = Blob.readBlob(current, journal).open()) {
+                    in.transferTo(out);
+                }
+            }
+            out.write("=======\n".getBytes(StandardCharsets.UTF_8));
+            if (given != null) {
+                try (InputStream in = Blob.readBlob(given, journal).open()) {
+                    in.transferTo(out);
+                }
+            }
+            out.write(">>>>>>>\n".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
     }
 
     /** Performs error checks for git merge. */
@@ -470,10 +1175,9 @@ public class Staging implements Serializable {
         }
         Commit givenCommit = Commit.readCommit(branches.get(givenBranch));
         Commit currentCommit = Commit.readCommit(prevCommit);
-        List<String> cwdFiles = Utils.plainFilenamesIn(Repository.CWD);
-        for (int i = 0; i < cwdFiles.size(); i++) {
-            if (!currentCommit.getFiles().containsKey(cwdFiles.get(i))
-                    && givenCommit.getFiles().containsKey(cwdFiles.get(i))) {
+        for (String filename : givenCommit.getFiles().keySet()) {
+            if (!currentCommit.getFiles().containsKey(filename) && sparse().contains(filename)
+                    && Utils.join(Repository.CWD, filename).isFile()) {
                 System.out.println("There is an untracked file in the way; "
                         + "delete it, or add and commit it first.");
                 System.exit(0);
@@ -483,48 +1187,23 @@ public class Staging implements Serializable {
 
     /** Locates the split point between two Commits. Helper for git merge. */
     public Commit splitpointLocater(Commit givenCommit, Commit currentCommit) {
-        ArrayList<String> givenComList = new ArrayList<>();
-        ArrayList<String> currComList = new ArrayList<>();
-
-        String name = givenCommit.getName();
-        while (!name.equals(Utils.sha1("commit0"))) {
-            givenComList.add(name);
-            String name2 = Commit.readCommit(name).getPrevCommit2();
-            if (name2 != null) {
-                givenComList.add(splitpointLocater(givenCommit,
-                        Commit.readCommit(name2)).getName());
-            }
-            name = Commit.readCommit(name).getPrevCommit();
-        }
-        givenComList.add(name);
-
-        name = currentCommit.getName();
-        while (!name.equals(Utils.sha1("commit0"))) {
-            currComList.add(name);
-            String name2 = Commit.readCommit(name).getPrevCommit2();
-            if (name2 != null) {
-                currComList.add(splitpointLocater(givenCommit, Commit.readCommit(name2)).getName());
-            }
-            name = Commit.readCommit(name).getPrevCommit();
-        }
-        currComList.add(name);
-
-        ArrayList<String> sharedComList = new ArrayList<>();
-        for (int i = 0; i < givenComList.size(); i++) {
-            if (currComList.contains(givenComList.get(i))) {
-                sharedComList.add(givenComList.get(i));
+        long start = Trace.start();
+        LinkedHashSet<String> givenComList = history().ancestors(givenCommit.getName());
+        Commit newestC = null;
+        for (String name : history().ancestors(currentCommit.getName())) {
+            if (givenComList.contains(name)) {
+                Commit shared = Commit.readCommit(name);
+                if (newestC == null || newestC.getTimestamp().before(shared.getTimestamp())) {
+                    newestC = shared;
+                }
             }
         }
-        Commit newestC = Commit.readCommit(sharedComList.get(0));
-        Date newestD = newestC.getTimestamp();
-        for (int i = 1; i < sharedComList.size(); i++) {
-            Date next = Commit.readCommit(sharedComList.get(i)).getTimestamp();
-            if (newestD.before(next)) {
-                newestD = next;
-                newestC = Commit.readCommit(sharedComList.get(i));
-            }
+        if (newestC == null) {
+            System.out.println("No common ancestor in this shallow history; "
+                    + "fetch --deepen or --unshallow first.");
+            System.exit(0);
         }
-
+        Trace.time("Staging.splitpointLocater", start);
         return newestC;
     }
 
@@ -0,0 +1,73 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Represents the stash of a repository, kept in .gitlet/stash as one
+ *  Commit name per line, newest first. Each entry is an ordinary Commit of
+ *  the tracked files as they were in the CWD, whose first parent is the
+ *  head Commit they were stashed from and whose second parent, if anything
+ *  was staged, is a Commit of the staging area. Files left unchanged keep
+ *  the Blobs of the head Commit, so an entry only stores what was edited.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Stash {
+
+    /** The file that the entries are saved in. */
+    static final File STASH_FILE = Utils.join(Repository.GITLET_DIR, "stash");
+
+    /** The names of the entries' Commits, newest first. */
+    private ArrayList<String> entries;
+
+    /** Reads the stash of the repository. */
+    public Stash() {
+        entries = new ArrayList<>();
+        if (STASH_FILE.isFile()) {
+            for (String id : Utils.readContentsAsString(STASH_FILE).split("\n")) {
+                if (!id.isEmpty()) {
+                    entries.add(id);
+                }
+            }
+        }
+    }
+
+    /** Returns the names of the entries' Commits, newest first. */
+    public List<String> entries() {
+        return entries;
+    }
+
+    /** Returns the Commit of entry INDEX, exiting if there is no such entry. */
+    public String get(int index) {
+        if (entries.isEmpty()) {
+            System.out.println("No stash entries found.");
+            System.exit(0);
+        }
+        if (index >= entries.size()) {
+            System.out.println("No stash entry at that index.");
+            System.exit(0);
+        }
+        return entries.get(index);
+    }
+
+    /** Adds the Commit ID as the newest entry. */
+    public void push(String id) {
+        entries.add(0, id);
+    }
+
+    /** Removes entry INDEX. */
+    public void remove(int index) {
+        entries.remove(index);
+    }
+
+    /** Saves the entries through JOURNAL. */
+    public void save(Journal journal) {
+        StringBuilder contents = new StringBuilder();
+        for (String id : entries) {
+            contents.append(id).append('\n');
+        }
+        journal.writeRefContents(STASH_FILE, contents.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,230 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+
+/** Represents a remote served by a Server, reached at a URL of the form
+ *  gitlet://HOST:PORT. Object transfers are pipelined: every request for a
+ *  batch of objects is sent before any answer is read, from a thread of its
+ *  own so that neither side ever waits on the other, which keeps a fetch
+ *  limited by bandwidth rather than by round trips.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class TcpRemote extends Remote {
+
+    /** Prefix of the URLs of TcpRemotes. */
+    static final String SCHEME = "gitlet://";
+    /** Number of objects asked for in one GET request. */
+    static final int BATCH = 256;
+
+    /** The connection to the server. */
+    private Socket socket;
+    /** Responses from the server. */
+    private DataInputStream in;
+    /** Requests to the server. */
+    private DataOutputStream out;
+    /** The first error of the thread sending pipelined requests, if any. */
+    private volatile IOException sendError;
+    /** The branch checked out on the server, once branches were asked for. */
+    private String checkedOut;
+
+    /** Connects to the server at URL. */
+    public TcpRemote(String url) {
+        String address = url.substring(SCHEME.length());
+        int colon = address.lastIndexOf(':');
+        String host = colon < 0 ? address : address.substring(0, colon);
+        int port = colon < 0 ? Server.PORT : Integer.parseInt(address.substring(colon + 1));
+        try {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(),
+                    Server.BUFFER_SIZE));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                    Server.BUFFER_SIZE));
+        } catch (IOException excp) {
+            System.out.println("Remote directory not found.");
+            System.exit(0);
+        }
+    }
+
+    @Override
+    public HashMap<String, String> branches() {
+        try {
+            DataInputStream response = call(new ByteArrayOutputStream(), Protocol.BRANCHES);
+            HashMap<String, String> branches = new HashMap<>();
+            for (int count = response.readInt(); count > 0; count--) {
+                branches.put(response.readUTF(), Protocol.readId(response));
+            }
+            checkedOut = response.readUTF();
+            return branches;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    @Override
+    public String checkedOut() {
+        if (checkedOut == null) {
+            branches();
+        }
+        return checkedOut;
+    }
+
+    @Override
+    public List<String> has(File folder, List<String> ids) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream request = Protocol.frame(bytes, Protocol.HAS);
+            request.writeUTF(folder.getName());
+            Protocol.writeIds(request, ids);
+            return Protocol.readIds(call(bytes, Protocol.HAS));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    @Override
+    public List<String> missingCommits(List<String> wants, List<String> common, int depth) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream request = Protocol.frame(bytes, Protocol.MISSING_COMMITS);
+            Protocol.writeIds(request, wants);
+            Protocol.writeIds(request, common);
+            request.writeInt(depth);
+            return Protocol.readIds(call(bytes, Protocol.MISSING_COMMITS));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    @Override
+    public List<String> blobsOf(List<String> commits) {
+        return idsOf(Protocol.BLOBS_OF, commits);
+    }
+
+    @Override
+    public List<String> chunksOf(List<String> blobs) {
+        return idsOf(Protocol.CHUNKS_OF, blobs);
+    }
+
+    @Override
+    public void download(File folder, List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Thread sender = new Thread(() -> {
+            try {
+                for (int start = 0; start < ids.size(); start += BATCH) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    DataOutputStream request = Protocol.frame(bytes, Protocol.GET);
+                    request.writeUTF(folder.getName());
+                    Protocol.writeIds(request, ids.subList(start,
+                            Math.min(start + BATCH, ids.size())));
+                    Protocol.send(out, bytes);
+                }
+                out.flush();
+            } catch (IOException excp) {
+                sendError = excp;
+            }
+        });
+        sender.start();
+        ObjectBatch received = new ObjectBatch(Repository.GITLET_DIR);
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                DataInputStream object = Protocol.payload(Protocol.readFrame(in), Protocol.OBJECT);
+                try (OutputStream contents = received.add(folder, Protocol.readId(object))) {
+                    Protocol.receiveObject(object, in, contents);
+                }
+            }
+            sender.join();
+            if (sendError != null) {
+                throw sendError;
+            }
+            received.install();
+        } catch (IOException excp) {
+            received.discard();
+            throw new IllegalArgumentException(excp);
+        } catch (InterruptedException excp) {
+            received.discard();
+            Thread.currentThread().interrupt();
+            throw Utils.error("Interrupted while fetching objects.");
+        }
+    }
+
+    @Override
+    public void upload(File folder, List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            for (String id : ids) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream request = Protocol.frame(bytes, Protocol.PUT);
+                request.writeUTF(folder.getName());
+                Protocol.writeId(request, id);
+                Protocol.sendObject(out, bytes, Utils.join(folder, id + ".txt"));
+            }
+            call(new ByteArrayOutputStream(), Protocol.END);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    @Override
+    public boolean updateBranch(String branch, String expected, String head) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream request = Protocol.frame(bytes, Protocol.UPDATE_BRANCH);
+            request.writeUTF(branch);
+            request.writeBoolean(expected != null);
+            if (expected != null) {
+                Protocol.writeId(request, expected);
+            }
+            Protocol.writeId(request, head);
+            return call(bytes, Protocol.UPDATE_BRANCH).readBoolean();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Asks the server for the objects related to IDS by the request TYPE. */
+    private List<String> idsOf(byte type, List<String> ids) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Protocol.writeIds(Protocol.frame(bytes, type), ids);
+            return Protocol.readIds(call(bytes, type));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Sends the request in BYTES, starting it as a frame of TYPE if it is
+     *  still empty, and returns the payload of the response. */
+    private DataInputStream call(ByteArrayOutputStream bytes, byte type) throws IOException {
+        if (bytes.size() == 0) {
+            Protocol.frame(bytes, type);
+        }
+        Protocol.send(out, bytes);
+        out.flush();
+        return Protocol.payload(Protocol.readFrame(in), Protocol.OK);
+    }
+}
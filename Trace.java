@@ -0,0 +1,165 @@
+package gitlet;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Accounts for where the time of one command goes: wall time per phase,
+ *  objects and bytes read and written, and the hits and misses of caches.
+ *  A traced command runs on a CommandThread that carries its Trace, so the
+ *  static recording methods cost a type check when nothing is traced. Work
+ *  handed to parallel streams through CommandThread.parallel is counted
+ *  too, and its phases add up the time of every thread. The
+ *  summary is printed to standard error as JSON when the command ends,
+ *  even if it ends by System.exit, so standard output is left unchanged.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Trace {
+
+    /** The flag that traces a command when given before it. */
+    static final String FLAG = "--trace";
+    /** The environment variable that traces every command when set. */
+    static final String ENV = "GITLET_TRACE";
+
+    /** The command traced. */
+    private String command;
+    /** When the command started, in nanoseconds. */
+    private long start;
+    /** Calls and nanoseconds of each phase, in the order first seen. */
+    private LinkedHashMap<String, long[]> phases;
+    /** Objects and bytes read, by kind. */
+    private TreeMap<String, long[]> reads;
+    /** Objects and bytes written, by kind. */
+    private TreeMap<String, long[]> writes;
+    /** Hits and misses of each cache. */
+    private TreeMap<String, long[]> caches;
+
+    /** Creates the Trace of COMMAND. */
+    public Trace(String command) {
+        this.command = command;
+        phases = new LinkedHashMap<>();
+        reads = new TreeMap<>();
+        writes = new TreeMap<>();
+        caches = new TreeMap<>();
+    }
+
+    /** Returns true if ARGS asks for a trace, or the environment does. */
+    public static boolean requested(String[] args) {
+        return (args.length > 0 && args[0].equals(FLAG)) || System.getenv(ENV) != null;
+    }
+
+    /** Starts the clock of the command and arranges for the summary to be
+     *  printed once the JVM exits. */
+    public void printOnExit() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.println(toJson())));
+        start = System.nanoTime();
+    }
+
+    /** Returns the Trace of the command running on this thread, or null. */
+    public static Trace current() {
+        return CommandThread.currentTrace();
+    }
+
+    /** Returns the time to pass to time() at the end of a phase. */
+    public static long start() {
+        return current() == null ? 0 : System.nanoTime();
+    }
+
+    /** Records one call of PHASE, which began at START. */
+    public static void time(String phase, long start) {
+        Trace t = current();
+        if (t != null) {
+            add(t.phases, phase, 1, System.nanoTime() - start);
+        }
+    }
+
+    /** Records that an object of KIND holding BYTES bytes was read. */
+    public static void read(String kind, long bytes) {
+        Trace t = current();
+        if (t != null) {
+            add(t.reads, kind, 1, bytes);
+        }
+    }
+
+    /** Records that an object of KIND holding BYTES bytes was written. */
+    public static void write(String kind, long bytes) {
+        Trace t = current();
+        if (t != null) {
+            add(t.writes, kind, 1, bytes);
+        }
+    }
+
+    /** Records a hit of CACHE if HIT, and a miss otherwise. */
+    public static void cache(String cache, boolean hit) {
+        Trace t = current();
+        if (t != null) {
+            add(t.caches, cache, hit ? 1 : 0, hit ? 0 : 1);
+        }
+    }
+
+    /** Adds FIRST and SECOND to the counters of KEY in COUNTERS, which the
+     *  threads of parallel work may update at once. */
+    private static void add(Map<String, long[]> counters, String key, long first, long second) {
+        synchronized (counters) {
+            long[] counter = counters.computeIfAbsent(key, k -> new long[2]);
+            counter[0] += first;
+            counter[1] += second;
+        }
+    }
+
+    /** Returns the summary of the command as JSON. */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"command\": ").append(quote(command))
+                .append(", \"wall_ms\": ").append(millis(System.nanoTime() - start));
+        json.append(", \"phases\": {");
+        String sep = "";
+        for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+            json.append(sep).append(quote(phase.getKey())).append(": {\"calls\": ")
+                    .append(phase.getValue()[0]).append(", \"ms\": ")
+                    .append(millis(phase.getValue()[1])).append('}');
+            sep = ", ";
+        }
+        json.append("}");
+        appendCounters(json, "reads", reads, "objects", "bytes");
+        appendCounters(json, "writes", writes, "objects", "bytes");
+        appendCounters(json, "caches", caches, "hits", "misses");
+        return json.append('}').toString();
+    }
+
+    /** Appends COUNTERS to JSON as the member NAME whose entries hold FIRST
+     *  and SECOND. */
+    private static void appendCounters(StringBuilder json, String name,
+                                       Map<String, long[]> counters, String first, String second) {
+        json.append(", \"").append(name).append("\": {");
+        String sep = "";
+        for (Map.Entry<String, long[]> counter : counters.entrySet()) {
+            json.append(sep).append(quote(counter.getKey())).append(": {\"")
+                    .append(first).append("\": ").append(counter.getValue()[0]).append(", \"")
+                    .append(second).append("\": ").append(counter.getValue()[1]).append('}');
+            sep = ", ";
+        }
+        json.append('}');
+    }
+
+    /** Returns TEXT as a JSON string. */
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /** Returns NANOS in milliseconds. */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -6,6 +6,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
@@ -17,6 +18,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Formatter;
 import java.util.List;
+import java.util.UUID;
 
 
 /** Assorted utilities.
@@ -36,6 +38,7 @@ class Utils {
     /** Returns the SHA-1 hash of the concatenation of VALS, which may
      *  be any mixture of byte arrays and Strings. */
     static String sha1(Object... vals) {
+        long start = Trace.start();
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-1");
             for (Object val : vals) {
@@ -51,6 +54,27 @@ class Utils {
             for (byte b : md.digest()) {
                 result.format("%02x", b);
             }
+            Trace.time("Utils.sha1", start);
+            return result.toString();
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** Returns the SHA-1 hash of PREFIX followed by everything left in IN,
+     *  which is read a block at a time rather than held whole. */
+    static String sha1(String prefix, InputStream in) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update(prefix.getBytes(StandardCharsets.UTF_8));
+            byte[] block = new byte[1 << 16];
+            for (int n = in.read(block); n >= 0; n = in.read(block)) {
+                md.update(block, 0, n);
+            }
+            Formatter result = new Formatter();
+            for (byte b : md.digest()) {
+                result.format("%02x", b);
+            }
             return result.toString();
         } catch (NoSuchAlgorithmException excp) {
             throw new IllegalArgumentException("System does not support SHA-1");
@@ -97,8 +121,12 @@ class Utils {
         if (!file.isFile()) {
             throw new IllegalArgumentException("must be a normal file");
         }
+        long start = Trace.start();
         try {
-            return Files.readAllBytes(file.toPath());
+            byte[] contents = Files.readAllBytes(file.toPath());
+            Trace.read("files", contents.length);
+            Trace.time("Utils.readContents", start);
+            return contents;
         } catch (IOException excp) {
             throw new IllegalArgumentException(excp);
         }
@@ -116,6 +144,8 @@ class Utils {
      *  either a String or a byte array.  Throws IllegalArgumentException
      *  in case of problems. */
     static void writeContents(File file, Object... contents) {
+        long start = Trace.start();
+        long written = 0;
         try {
             if (file.isDirectory()) {
                 throw
@@ -124,13 +154,14 @@ class Utils {
             BufferedOutputStream str =
                 new BufferedOutputStream(Files.newOutputStream(file.toPath()));
             for (Object obj : contents) {
-                if (obj instanceof byte[]) {
-                    str.write((byte[]) obj);
-                } else {
-                    str.write(((String) obj).getBytes(StandardCharsets.UTF_8));
-                }
+                byte[] bytes = obj instanceof byte[] ? (byte[]) obj
+                        : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                str.write(bytes);
+                written += bytes.length;
             }
             str.close();
+            Trace.write("files", written);
+            Trace.time("Utils.writeContents", start);
         } catch (IOException | ClassCastException excp) {
             throw new IllegalArgumentException(excp);
         }
@@ -140,11 +171,14 @@ class Utils {
      *  Throws IllegalArgumentException in case of problems. */
     static <T extends Serializable> T readObject(File file,
                                                  Class<T> expectedClass) {
+        long start = Trace.start();
         try {
             ObjectInputStream in =
                 new ObjectInputStream(new FileInputStream(file));
             T result = expectedClass.cast(in.readObject());
             in.close();
+            Trace.read(expectedClass.getSimpleName(), file.length());
+            Trace.time("Utils.readObject", start);
             return result;
         } catch (IOException | ClassCastException
                  | ClassNotFoundException excp) {
@@ -209,11 +243,13 @@ class Utils {
 
     /** Returns a byte array containing the serialized contents of OBJ. */
     static byte[] serialize(Serializable obj) {
+        long start = Trace.start();
         try {
             ByteArrayOutputStream stream = new ByteArrayOutputStream();
             ObjectOutputStream objectStream = new ObjectOutputStream(stream);
             objectStream.writeObject(obj);
             objectStream.close();
+            Trace.time("Utils.serialize", start);
             return stream.toByteArray();
         } catch (IOException excp) {
             throw error("Internal error serializing commit.");
@@ -0,0 +1,240 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/** Watches the CWD for changes so that commands need not read every
+ *  tracked file to find the few that changed. The watcher runs as a
+ *  process of its own (git watch), holding .gitlet/watch/lock, and keeps
+ *  in .gitlet/watch/state the files changed since it started, each with
+ *  the sequence number of its last event. A command syncs with it by
+ *  creating a cookie file, which the watcher deletes once every event
+ *  before it is in the state. Files a command has found to match their
+ *  Blobs are kept in .gitlet/watch/clean with the sequence number they
+ *  were checked at, and are trusted until a later event names them.
+ *  Each run of the watcher has an id of its own, and the watcher takes a
+ *  new one when the operating system drops events, so a stale clean list
+ *  is never trusted: a command that cannot sync, for any reason, reads
+ *  every file as it would without a watcher.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class Watcher {
+
+    /** The folder that the watcher keeps its files in. */
+    static final File WATCH_DIR = Utils.join(Repository.GITLET_DIR, "watch");
+    /** The file that a running watcher holds locked. */
+    static final File LOCK_FILE = Utils.join(WATCH_DIR, "lock");
+    /** The files changed since the watcher started. */
+    static final File STATE_FILE = Utils.join(WATCH_DIR, "state");
+    /** The files last found to match their Blobs. */
+    static final File CLEAN_FILE = Utils.join(WATCH_DIR, "clean");
+    /** Prefix of the names of cookie files. */
+    static final String COOKIE = "cookie-";
+    /** Default number of milliseconds to wait for the watcher to sync. */
+    static final long TIMEOUT = 1000;
+    /** Milliseconds the watcher waits for more events before saving. */
+    static final long SETTLE = 10;
+
+    /** The id of this run of the watcher. */
+    private String id;
+    /** The sequence number of the last event. */
+    private long seq;
+    /** The files changed, each mapped to the sequence number of its last event. */
+    private TreeMap<String, Long> changed;
+
+    /** Creates a watcher that has seen no events. */
+    public Watcher() {
+        id = UUID.randomUUID().toString();
+        changed = new TreeMap<>();
+    }
+
+    /** Watches the CWD until the process is stopped. Used for git watch. */
+    public void watch() {
+        WATCH_DIR.mkdir();
+        try (FileChannel channel = FileChannel.open(LOCK_FILE.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+             WatchService service = FileSystems.getDefault().newWatchService()) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                System.out.println("A watcher is already running.");
+                System.exit(0);
+            }
+            WatchKey files = Repository.CWD.toPath().register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            WATCH_DIR.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE);
+            save();
+            System.out.println("Watching " + Repository.CWD + ".");
+            while (true) {
+                WatchKey key = service.take();
+                HashSet<String> cookies = new HashSet<>();
+                boolean updated = false;
+                while (key != null) {
+                    updated |= record(key, key == files, cookies);
+                    if (!key.reset() && key == files) {
+                        System.out.println("The working directory is gone.");
+                        return;
+                    }
+                    key = service.poll(SETTLE, TimeUnit.MILLISECONDS);
+                }
+                if (updated || !cookies.isEmpty()) {
+                    save();
+                }
+                for (String cookie : cookies) {
+                    Files.deleteIfExists(Utils.join(WATCH_DIR, cookie).toPath());
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Records the events of KEY, which watches the CWD if CWD and the
+     *  watcher's folder otherwise, adding the cookies seen to COOKIES.
+     *  Returns true if the state changed. */
+    private boolean record(WatchKey key, boolean cwd, Set<String> cookies) {
+        boolean updated = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                id = UUID.randomUUID().toString();
+                changed.clear();
+                updated = true;
+                continue;
+            }
+            String name = ((Path) event.context()).toString();
+            if (!cwd) {
+                if (name.startsWith(COOKIE)) {
+                    cookies.add(name);
+                }
+            } else if (!name.equals(Repository.GITLET_DIR.getName())) {
+                seq += 1;
+                changed.put(name, seq);
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
+    /** Replaces STATE_FILE with the id, the last sequence number and the
+     *  changed files. */
+    private void save() {
+        StringBuilder state = new StringBuilder(id).append(' ').append(seq).append('\n');
+        for (Map.Entry<String, Long> file : changed.entrySet()) {
+            state.append(file.getValue()).append(' ').append(file.getKey()).append('\n');
+        }
+        Journal.replace(STATE_FILE, state.toString().getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /** Returns the state of the running watcher once it has seen every
+     *  change made so far, or null if no watcher runs or it does not answer
+     *  within core.watchTimeout milliseconds. */
+    public static Watcher sync() {
+        if (!LOCK_FILE.isFile() || !running()) {
+            return null;
+        }
+        File cookie = Utils.join(WATCH_DIR, COOKIE + UUID.randomUUID());
+        long deadline = System.currentTimeMillis()
+                + new Config().getLong("core.watchTimeout", TIMEOUT);
+        try {
+            Files.createFile(cookie.toPath());
+            long backoff = 1;
+            while (cookie.exists()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    Files.deleteIfExists(cookie.toPath());
+                    return null;
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, RepositoryLock.MAX_BACKOFF);
+            }
+            return read();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /** Returns true if a watcher holds LOCK_FILE. */
+    private static boolean running() {
+        try (FileChannel channel = FileChannel.open(LOCK_FILE.toPath(), StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Returns the state saved in STATE_FILE. */
+    private static Watcher read() {
+        Watcher state = new Watcher();
+        String[] lines = Utils.readContentsAsString(STATE_FILE).split("\n");
+        String[] header = lines[0].split(" ");
+        state.id = header[0];
+        state.seq = Long.parseLong(header[1]);
+        for (int i = 1; i < lines.length; i++) {
+            int space = lines[i].indexOf(' ');
+            state.changed.put(lines[i].substring(space + 1),
+                    Long.parseLong(lines[i].substring(0, space)));
+        }
+        return state;
+    }
+
+    /** Returns the files of the clean list that no event has named since
+     *  they were checked, each mapped to the Blob it matched. */
+    public Map<String, String> clean() {
+        HashMap<String, String> clean = new HashMap<>();
+        if (!CLEAN_FILE.isFile()) {
+            return clean;
+        }
+        String[] lines = Utils.readContentsAsString(CLEAN_FILE).split("\n");
+        String[] header = lines[0].split(" ");
+        if (header.length != 2 || !header[0].equals(id)) {
+            return clean;
+        }
+        long checked = Long.parseLong(header[1]);
+        for (int i = 1; i < lines.length; i++) {
+            int space = lines[i].indexOf(' ');
+            String name = lines[i].substring(space + 1);
+            if (changed.getOrDefault(name, 0L) <= checked) {
+                clean.put(name, lines[i].substring(0, space));
+            }
+        }
+        return clean;
+    }
+
+    /** Saves CLEAN, files found to match the Blobs they map to after this
+     *  state was synced, as the clean list. */
+    public void saveClean(Map<String, String> clean) {
+        StringBuilder list = new StringBuilder(id).append(' ').append(seq).append('\n');
+        for (Map.Entry<String, String> file : new TreeMap<>(clean).entrySet()) {
+            list.append(file.getValue()).append(' ').append(file.getKey()).append('\n');
+        }
+        Journal.replace(CLEAN_FILE, list.toString().getBytes(StandardCharsets.UTF_8), false);
+    }
+}
@@ -0,0 +1,59 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/** Creates the repositories that the benchmarks run against. Gitlet finds
+ *  its repository through user.dir, which Repository reads once, so create()
+ *  must run before any other gitlet class is loaded; JMH runs each benchmark
+ *  in a fresh JVM, which makes that hold as long as it is not run with -f 0.
+ *  Writes go through journals in durability mode none, so that the numbers
+ *  measure gitlet rather than the disk's sync latency.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class BenchmarkRepository {
+
+    /** Seed of the contents that benchmarks write. */
+    static final long SEED = 61;
+
+    /** Makes a new empty directory the working directory, initializes a
+     *  repository in it and returns it. */
+    public static File create() {
+        try {
+            File dir = Files.createTempDirectory("gitlet-bench").toFile();
+            System.setProperty("user.dir", dir.getAbsolutePath());
+            new Repository();
+            new Config().set("core.durability", Journal.NONE);
+            return dir;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp);
+        }
+    }
+
+    /** Returns a new journal on the repository. */
+    public static Journal journal() {
+        return new Journal(Journal.NONE);
+    }
+
+    /** Returns SIZE random bytes, the same for every run. */
+    public static byte[] contents(int size) {
+        byte[] contents = new byte[size];
+        new Random(SEED + size).nextBytes(contents);
+        return contents;
+    }
+
+    /** Saves and returns a Commit with parent PARENT tracking FILES files
+     *  whose Blob names are made up. */
+    public static Commit commit(String parent, int files, Journal journal) {
+        String[] fileNames = new String[files];
+        String[] blobs = new String[files];
+        for (int i = 0; i < files; i++) {
+            fileNames[i] = "dir" + (i % 64) + "/file" + i + ".txt";
+            blobs[i] = Utils.sha1("blob" + i);
+        }
+        return new Commit("commit of " + files + " files", parent, fileNames, blobs, journal);
+    }
+}
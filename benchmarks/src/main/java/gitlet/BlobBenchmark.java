@@ -0,0 +1,79 @@
+package gitlet;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures creating and saving a Blob from a working file, and reading a
+ *  saved Blob back, over files of growing size. Sizes past the chunk
+ *  threshold go through the Chunker.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlobBenchmark {
+
+    /** Name of the working file. */
+    static final String FILE_NAME = "file.bin";
+
+    /** Size of the file, in bytes. */
+    @Param({"1024", "65536", "1048576", "8388608"})
+    private int size;
+
+    /** The contents of the file. */
+    private byte[] contents;
+    /** The name of the saved Blob. */
+    private String saved;
+    /** Number of Blobs written so far, which makes each one new. */
+    private long written;
+
+    /** Creates a repository with the file and its saved Blob. */
+    @Setup
+    public void setup() {
+        BenchmarkRepository.create();
+        contents = BenchmarkRepository.contents(size);
+        Utils.writeContents(Utils.join(Repository.CWD, FILE_NAME), contents);
+        Journal journal = BenchmarkRepository.journal();
+        Blob b = new Blob(FILE_NAME, journal);
+        b.saveBlob(journal);
+        journal.commit();
+        journal.close();
+        saved = b.getName();
+    }
+
+    /** Changes the file so that it has a Blob of its own, and then creates
+     *  and saves that Blob. */
+    @Benchmark
+    public String write() {
+        written += 1;
+        ByteBuffer.wrap(contents).putLong(written);
+        Utils.writeContents(Utils.join(Repository.CWD, FILE_NAME), contents);
+        Journal journal = BenchmarkRepository.journal();
+        Blob b = new Blob(FILE_NAME, journal);
+        b.saveBlob(journal);
+        journal.commit();
+        journal.close();
+        return b.getName();
+    }
+
+    /** Reads the saved Blob and its whole file. */
+    @Benchmark
+    public byte[] read() {
+        return Blob.readBlob(saved).getFile();
+    }
+}
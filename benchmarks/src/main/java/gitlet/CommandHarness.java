@@ -0,0 +1,235 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** Times whole gitlet commands on synthetic repositories of growing size,
+ *  which may be invoked as
+ *      java -cp benchmarks.jar gitlet.CommandHarness OUT [KEY=VALUE...]
+ *  with the keys
+ *      scales      FILESxCOMMITS,... (default 100x20,1000x100,10000x200)
+ *      branches    number of branches (default 4)
+ *      mergeEvery  Commits between merges (default 10)
+ *      sizes       file sizes, as for RepositoryGenerator (default lognormal:4096:1.0)
+ *      seed        seed of the generator (default 61)
+ *      reps        times each command is run (default 5)
+ *      label       names the gitlet version measured (default current)
+ *  Each scale is generated and measured by a JVM of its own in a temporary
+ *  directory, as gitlet reads its working directory only once. The commands
+ *  are run through Main.main, locking and journal included, and the results
+ *  are written to OUT.csv and OUT.json, one row per scale and command.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class CommandHarness {
+
+    /** Prefix of the lines with which a measuring JVM reports results. */
+    static final String RESULT = "RESULT,";
+    /** Columns of the results. */
+    static final String COLUMNS = "label,command,files,commits,branches,samples,"
+            + "median_us,p90_us,min_us,mean_us";
+
+    /** The options of the run. */
+    private LinkedHashMap<String, String> options;
+
+    /** Creates a harness with the options OPTIONS. */
+    public CommandHarness(LinkedHashMap<String, String> options) {
+        this.options = options;
+    }
+
+    /** Runs the harness, or measures one scale if ARGS starts with "scale". */
+    public static void main(String... args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: java gitlet.CommandHarness OUT [KEY=VALUE...]");
+            return;
+        }
+        LinkedHashMap<String, String> options = new LinkedHashMap<>();
+        options.put("scales", "100x20,1000x100,10000x200");
+        options.put("branches", "4");
+        options.put("mergeEvery", "10");
+        options.put("sizes", "lognormal:4096:1.0");
+        options.put("seed", "61");
+        options.put("reps", "5");
+        options.put("label", "current");
+        for (String arg : Arrays.copyOfRange(args, 1, args.length)) {
+            int equals = arg.indexOf('=');
+            if (equals < 0 || !options.containsKey(arg.substring(0, equals))) {
+                System.out.println("Unknown option: " + arg);
+                return;
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        CommandHarness harness = new CommandHarness(options);
+        if (args[0].equals("scale")) {
+            harness.measure();
+        } else {
+            harness.run(new File(args[0]).getAbsoluteFile());
+        }
+    }
+
+    /** Measures every scale, each in a JVM of its own, and writes the results
+     *  to OUT.csv and OUT.json. */
+    private void run(File out) throws IOException, InterruptedException {
+        ArrayList<String[]> rows = new ArrayList<>();
+        for (String scale : options.get("scales").split(",")) {
+            String[] sizes = scale.split("x");
+            File dir = Files.createTempDirectory("gitlet-harness").toFile();
+            try {
+                ArrayList<String> command = new ArrayList<>();
+                command.add(Utils.join(System.getProperty("java.home"), "bin", "java").getPath());
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add("gitlet.CommandHarness");
+                command.add("scale");
+                for (String key : options.keySet()) {
+                    if (!key.equals("scales")) {
+                        command.add(key + "=" + options.get(key));
+                    }
+                }
+                command.add("scales=" + sizes[0] + "x" + sizes[1]);
+                Process p = new ProcessBuilder(command).directory(dir)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                try (BufferedReader results = new BufferedReader(
+                        new InputStreamReader(p.getInputStream()))) {
+                    for (String line = results.readLine(); line != null; line = results.readLine()) {
+                        if (line.startsWith(RESULT)) {
+                            rows.add(line.substring(RESULT.length()).split(","));
+                            System.out.println(line.substring(RESULT.length()));
+                        }
+                    }
+                }
+                if (p.waitFor() != 0) {
+                    System.out.println("Scale " + scale + " failed.");
+                }
+            } finally {
+                delete(dir);
+            }
+        }
+        writeResults(out, rows);
+    }
+
+    /** Generates the repository of the one scale given and times each
+     *  command on it, reporting the results on standard output. */
+    private void measure() {
+        String[] scale = options.get("scales").split("x");
+        int files = Integer.parseInt(scale[0]);
+        int commits = Integer.parseInt(scale[1]);
+        int branches = Integer.parseInt(options.get("branches"));
+        int reps = Integer.parseInt(options.get("reps"));
+        RepositoryGenerator generator = new RepositoryGenerator(files, commits, branches,
+                Integer.parseInt(options.get("mergeEvery")), options.get("sizes"),
+                Long.parseLong(options.get("seed")));
+        LinkedHashMap<String, ArrayList<Long>> samples = new LinkedHashMap<>();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long start = System.nanoTime();
+            generator.generate();
+            sample(samples, "generate", System.nanoTime() - start);
+            Staging s = Utils.readObject(Utils.join(Repository.GITLET_DIR, "staging.txt"),
+                    Staging.class);
+            if (!s.getCurrentBranch().equals("main")) {
+                command(samples, null, "checkout", "main");
+            }
+            for (int r = 0; r < reps; r++) {
+                command(samples, "status", "status");
+                command(samples, "log", "log");
+                command(samples, "find", "find", RepositoryGenerator.message(0));
+                for (int i : generator.changes(0)) {
+                    generator.write(i);
+                    command(samples, "add", "add", RepositoryGenerator.fileName(i));
+                }
+                command(samples, "commit", "commit", "harness " + r);
+                if (branches > 1) {
+                    command(samples, "checkout", "checkout", "b1");
+                    for (int i : generator.changes(1)) {
+                        generator.write(i);
+                        command(samples, null, "add", RepositoryGenerator.fileName(i));
+                    }
+                    command(samples, null, "commit", "harness b1 " + r);
+                    command(samples, "checkout", "checkout", "main");
+                    for (int i : generator.changes(0)) {
+                        generator.write(i);
+                        command(samples, null, "add", RepositoryGenerator.fileName(i));
+                    }
+                    command(samples, null, "commit", "harness main " + r);
+                    command(samples, "merge", "merge", "b1");
+                }
+            }
+        } finally {
+            System.setOut(out);
+        }
+        for (String name : samples.keySet()) {
+            List<Long> times = samples.get(name);
+            times.sort(Comparator.naturalOrder());
+            long total = times.stream().mapToLong(Long::longValue).sum();
+            System.out.println(RESULT + String.join(",", options.get("label"), name,
+                    scale[0], scale[1], String.valueOf(branches), String.valueOf(times.size()),
+                    micros(times.get(times.size() / 2)),
+                    micros(times.get((int) Math.ceil(0.9 * times.size()) - 1)),
+                    micros(times.get(0)), micros(total / times.size())));
+        }
+    }
+
+    /** Runs the gitlet command ARGS, recording its time as a sample of NAME
+     *  in SAMPLES unless NAME is null. */
+    private static void command(LinkedHashMap<String, ArrayList<Long>> samples, String name,
+                                String... args) {
+        long start = System.nanoTime();
+        Main.main(args);
+        if (name != null) {
+            sample(samples, name, System.nanoTime() - start);
+        }
+    }
+
+    /** Records TIME as a sample of NAME in SAMPLES. */
+    private static void sample(LinkedHashMap<String, ArrayList<Long>> samples, String name,
+                               long time) {
+        samples.computeIfAbsent(name, k -> new ArrayList<>()).add(time);
+    }
+
+    /** Returns NANOS in microseconds. */
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1000);
+    }
+
+    /** Writes ROWS, in the order of COLUMNS, to OUT.csv and OUT.json. */
+    private static void writeResults(File out, List<String[]> rows) {
+        String[] columns = COLUMNS.split(",");
+        StringBuilder csv = new StringBuilder(COLUMNS).append('\n');
+        StringBuilder json = new StringBuilder("[\n");
+        for (int r = 0; r < rows.size(); r++) {
+            csv.append(String.join(",", rows.get(r))).append('\n');
+            json.append("  {");
+            for (int c = 0; c < columns.length; c++) {
+                boolean text = c < 2;
+                json.append(c == 0 ? "" : ", ").append('"').append(columns[c]).append("\": ")
+                        .append(text ? "\"" : "").append(rows.get(r)[c]).append(text ? "\"" : "");
+            }
+            json.append(r + 1 < rows.size() ? "},\n" : "}\n");
+        }
+        json.append("]\n");
+        Utils.writeContents(new File(out.getPath() + ".csv"), csv.toString());
+        Utils.writeContents(new File(out.getPath() + ".json"), json.toString());
+    }
+
+    /** Deletes DIR and everything in it. */
+    private static void delete(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures Utils.sha1, which names every Blob and chunk, over contents of
+ *  growing size.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+
+    /** Size of the contents hashed, in bytes. */
+    @Param({"64", "4096", "65536", "1048576"})
+    private int size;
+
+    /** The contents hashed. */
+    private byte[] contents;
+
+    /** Creates the contents. */
+    @Setup
+    public void setup() {
+        contents = BenchmarkRepository.contents(size);
+    }
+
+    /** Hashes the contents the way a Blob is named. */
+    @Benchmark
+    public String sha1() {
+        return Utils.sha1("blob", contents);
+    }
+}
@@ -0,0 +1,101 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+
+/** A stress test for concurrent gitlet commands, which may be invoked as
+ *      java -cp benchmarks.jar gitlet.LockStress DIR PROCESSES ITERATIONS
+ *  It initializes a repository in the empty directory DIR and starts
+ *  PROCESSES worker JVMs in it. Each worker runs ITERATIONS rounds of one
+ *  writing command (branch) and three reading commands (status, log,
+ *  global-log). Afterwards it checks that no branch was lost and prints the
+ *  throughput of the reading and writing commands.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class LockStress {
+
+    /** Reading commands run per writing command by each worker. */
+    static final int READS_PER_WRITE = 3;
+
+    /** Runs the stress test, or one worker if ARGS starts with "worker". */
+    public static void main(String... args) throws IOException, InterruptedException {
+        if (args.length == 3 && args[0].equals("worker")) {
+            worker(args[1], Integer.parseInt(args[2]));
+            return;
+        }
+        if (args.length != 3) {
+            System.out.println("Usage: java -cp benchmarks.jar gitlet.LockStress"
+                    + " DIR PROCESSES ITERATIONS");
+            return;
+        }
+        File dir = new File(args[0]).getAbsoluteFile();
+        int processes = Integer.parseInt(args[1]);
+        int iterations = Integer.parseInt(args[2]);
+        dir.mkdirs();
+        if (new File(dir, ".gitlet").exists()) {
+            System.out.println("DIR must not already contain a Gitlet repository.");
+            return;
+        }
+        run(dir, "gitlet.Main", "init").waitFor();
+
+        long start = System.nanoTime();
+        ArrayList<Process> workers = new ArrayList<>();
+        for (int i = 0; i < processes; i++) {
+            workers.add(run(dir, "gitlet.LockStress", "worker", "w" + i,
+                    String.valueOf(iterations)));
+        }
+        int failed = 0;
+        for (Process worker : workers) {
+            if (worker.waitFor() != 0) {
+                failed += 1;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Staging s = Utils.readObject(new File(new File(dir, ".gitlet"), "staging.txt"),
+                Staging.class);
+        int expected = processes * iterations + 1;
+        int writes = processes * iterations;
+        int reads = writes * READS_PER_WRITE;
+        System.out.printf("workers: %d, failed: %d%n", processes, failed);
+        System.out.printf("branches: %d of %d expected%s%n", s.branchCount(), expected,
+                s.branchCount() == expected ? "" : " (LOST UPDATES)");
+        System.out.printf("elapsed: %.3f s%n", seconds);
+        System.out.printf("writes: %d (%.1f/s), reads: %d (%.1f/s), total: %.1f commands/s%n",
+                writes, writes / seconds, reads, reads / seconds, (writes + reads) / seconds);
+    }
+
+    /** Runs ITERATIONS rounds of commands in the current directory, creating
+     *  branches named after ID. */
+    private static void worker(String id, int iterations) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int i = 0; i < iterations; i++) {
+                Main.main(new String[] {"branch", id + "-" + i});
+                Main.main(new String[] {"status"});
+                Main.main(new String[] {"log"});
+                Main.main(new String[] {"global-log"});
+            }
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /** Starts a JVM running MAINCLASS with ARGS in DIR, on this JVM's class path. */
+    private static Process run(File dir, String mainClass, String... args) throws IOException {
+        ArrayList<String> command = new ArrayList<>();
+        command.add(Utils.join(System.getProperty("java.home"), "bin", "java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        for (String arg : args) {
+            command.add(arg);
+        }
+        return new ProcessBuilder(command).directory(dir).inheritIO().start();
+    }
+}
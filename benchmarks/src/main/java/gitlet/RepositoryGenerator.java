@@ -0,0 +1,158 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Builds a synthetic repository in the current directory by driving
+ *  Staging directly, one journal per commit. Everything but the names of
+ *  the Commits, which gitlet makes random, follows from the seed: the first
+ *  Commit tracks FILES files, and each later Commit changes a few of them on
+ *  one of BRANCHES branches. Each branch only changes the files whose number
+ *  is its own modulo BRANCHES, so merging one branch into another, which is
+ *  done after every MERGEEVERY Commits, never conflicts.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+public class RepositoryGenerator {
+
+    /** Average length of a generated line, in bytes. */
+    static final int LINE_LENGTH = 48;
+
+    /** Number of files. */
+    private int files;
+    /** Number of Commits, counting the first but not commit0 or merges. */
+    private int commits;
+    /** Number of branches, counting main. */
+    private int branches;
+    /** Number of Commits between merges, or 0 for none. */
+    private int mergeEvery;
+    /** The distribution of file sizes. */
+    private String sizes;
+    /** The source of every random choice. */
+    private Random random;
+    /** Number of files changed by each Commit after the first. */
+    private int changesPerCommit;
+    /** Number of times each file has been changed. */
+    private int[] versions;
+
+    /** Creates a generator of repositories with FILES files, COMMITS Commits
+     *  spread over BRANCHES branches, a merge after every MERGEEVERY Commits
+     *  and file sizes drawn from SIZES, which is fixed:BYTES,
+     *  uniform:MIN:MAX or lognormal:MEDIAN:SIGMA. SEED fixes every choice. */
+    public RepositoryGenerator(int files, int commits, int branches, int mergeEvery,
+                               String sizes, long seed) {
+        this.files = files;
+        this.commits = commits;
+        this.branches = Math.max(1, Math.min(branches, files));
+        this.mergeEvery = mergeEvery;
+        this.sizes = sizes;
+        random = new Random(seed);
+        changesPerCommit = Math.max(1, files / this.branches / 20);
+        versions = new int[files];
+    }
+
+    /** Returns the name of file number I. */
+    public static String fileName(int i) {
+        return String.format("f%06d.txt", i);
+    }
+
+    /** Returns the name of branch number I, where main is number 0. */
+    public static String branchName(int i) {
+        return i == 0 ? "main" : "b" + i;
+    }
+
+    /** Returns the message of the I-th generated Commit. */
+    public static String message(int i) {
+        return "generated " + i;
+    }
+
+    /** Initializes a repository in the current directory and fills it. */
+    public void generate() {
+        new Repository();
+        Journal journal = new Journal();
+        Staging s = Staging.readStaging(journal);
+        for (int i = 0; i < files; i++) {
+            write(i);
+            s.addStaging(fileName(i));
+        }
+        s.commitStaging(message(0), null);
+        for (int b = 1; b < branches; b++) {
+            s.branch(branchName(b));
+        }
+        journal.commit();
+        journal.close();
+
+        for (int c = 1; c < commits; c++) {
+            int b = random.nextInt(branches);
+            journal = new Journal();
+            s = Staging.readStaging(journal);
+            if (!branchName(b).equals(s.getCurrentBranch())) {
+                s.checkoutBranch(branchName(b));
+            }
+            for (int i : changes(b)) {
+                write(i);
+                s.addStaging(fileName(i));
+            }
+            s.commitStaging(message(c), null);
+            if (mergeEvery > 0 && branches > 1 && c % mergeEvery == 0) {
+                int other = (b + 1 + random.nextInt(branches - 1)) % branches;
+                s.merge(branchName(other));
+            }
+            journal.commit();
+            journal.close();
+        }
+    }
+
+    /** Returns the files that the next Commit on branch B changes. */
+    public ArrayList<Integer> changes(int b) {
+        ArrayList<Integer> changed = new ArrayList<>();
+        int owned = (files - b + branches - 1) / branches;
+        for (int k = 0; k < changesPerCommit && owned > 0; k++) {
+            int i = b + branches * random.nextInt(owned);
+            if (!changed.contains(i)) {
+                changed.add(i);
+            }
+        }
+        return changed;
+    }
+
+    /** Writes a new version of file number I to the current directory. */
+    public void write(int i) {
+        versions[i] += 1;
+        int size = size();
+        StringBuilder contents = new StringBuilder(size + LINE_LENGTH);
+        contents.append(fileName(i)).append(" version ").append(versions[i]).append('\n');
+        while (contents.length() < size) {
+            int length = 1 + random.nextInt(2 * LINE_LENGTH);
+            for (int k = 0; k < length; k++) {
+                contents.append((char) ('a' + random.nextInt(26)));
+            }
+            contents.append('\n');
+        }
+        Utils.writeContents(Utils.join(Repository.CWD, fileName(i)), contents.toString());
+    }
+
+    /** Returns a file size drawn from the distribution. */
+    private int size() {
+        String[] parts = sizes.split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    return Integer.parseInt(parts[1]);
+                case "uniform":
+                    int min = Integer.parseInt(parts[1]);
+                    return min + random.nextInt(Integer.parseInt(parts[2]) - min + 1);
+                case "lognormal":
+                    return (int) Math.min(Integer.MAX_VALUE >> 1, Math.round(
+                            Integer.parseInt(parts[1])
+                                    * Math.exp(Double.parseDouble(parts[2]) * random.nextGaussian())));
+                default:
+                    break;
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException excp) {
+            //Reported below
+        }
+        throw Utils.error("Unknown size distribution: %s", sizes);
+    }
+}
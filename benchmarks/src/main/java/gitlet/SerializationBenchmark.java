@@ -0,0 +1,67 @@
+package gitlet;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures Utils.serialize and Utils.readObject on Commits tracking a
+ *  growing number of files, and Commit.readCommit, which reads one.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /** Number of files the Commit tracks. */
+    @Param({"1", "100", "10000"})
+    private int files;
+
+    /** The Commit measured. */
+    private Commit commit;
+    /** The file the Commit is saved in. */
+    private File saved;
+
+    /** Creates a repository holding the Commit. */
+    @Setup
+    public void setup() {
+        BenchmarkRepository.create();
+        Journal journal = BenchmarkRepository.journal();
+        commit = BenchmarkRepository.commit(Utils.sha1("commit0"), files, journal);
+        journal.commit();
+        journal.close();
+        saved = Utils.join(Commit.COMMIT_FOLDER, commit.getName() + ".txt");
+    }
+
+    /** Serializes the Commit. */
+    @Benchmark
+    public byte[] serialize() {
+        return Utils.serialize(commit);
+    }
+
+    /** Reads the saved Commit with Utils.readObject. */
+    @Benchmark
+    public Commit readObject() {
+        return Utils.readObject(saved, Commit.class);
+    }
+
+    /** Reads the saved Commit by name. */
+    @Benchmark
+    public Commit readCommit() {
+        return Commit.readCommit(commit.getName());
+    }
+}
@@ -0,0 +1,71 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures Staging.splitpointLocater on two branches that share a history
+ *  of growing length and then each have a few Commits of their own.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplitpointBenchmark {
+
+    /** Number of Commits each branch has past the split point. */
+    static final int DIVERGED = 10;
+    /** Number of files each Commit tracks. */
+    static final int FILES = 10;
+
+    /** Number of Commits the two branches share. */
+    @Param({"100", "1000", "10000"})
+    private int shared;
+
+    /** The staging area of the repository. */
+    private Staging staging;
+    /** The head of one branch. */
+    private Commit current;
+    /** The head of the other branch. */
+    private Commit given;
+
+    /** Creates the two branches. */
+    @Setup
+    public void setup() {
+        BenchmarkRepository.create();
+        Journal journal = BenchmarkRepository.journal();
+        String head = Utils.sha1("commit0");
+        for (int i = 0; i < shared; i++) {
+            head = BenchmarkRepository.commit(head, FILES, journal).getName();
+        }
+        String other = head;
+        for (int i = 0; i < DIVERGED; i++) {
+            head = BenchmarkRepository.commit(head, FILES, journal).getName();
+            other = BenchmarkRepository.commit(other, FILES, journal).getName();
+        }
+        journal.commit();
+        journal.close();
+        staging = Staging.readStaging(BenchmarkRepository.journal());
+        current = Commit.readCommit(head);
+        given = Commit.readCommit(other);
+    }
+
+    /** Finds the split point of the two branches. */
+    @Benchmark
+    public Commit splitpoint() {
+        return staging.splitpointLocater(given, current);
+    }
+}
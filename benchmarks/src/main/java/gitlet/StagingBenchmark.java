@@ -0,0 +1,62 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures Staging.readStaging and Staging.saveStaging, which every command
+ *  does once, for a head Commit tracking a growing number of files.
+ *  @author Kartik Punia
+ *  @author Akshay Talkad
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StagingBenchmark {
+
+    /** Number of files the head Commit tracks. */
+    @Param({"10", "1000", "100000"})
+    private int files;
+
+    /** Creates a repository whose head Commit tracks FILES files. */
+    @Setup
+    public void setup() {
+        BenchmarkRepository.create();
+        Journal journal = BenchmarkRepository.journal();
+        Staging s = Staging.readStaging(journal);
+        s.moveBranch("main", BenchmarkRepository.commit(Utils.sha1("commit0"), files,
+                journal).getName());
+        s.saveStaging();
+        journal.commit();
+        journal.close();
+    }
+
+    /** Reads staging.txt. */
+    @Benchmark
+    public Staging readStaging() {
+        return Staging.readStaging(BenchmarkRepository.journal());
+    }
+
+    /** Reads staging.txt and saves it again, switching it into place. */
+    @Benchmark
+    public Staging saveStaging() {
+        Journal journal = BenchmarkRepository.journal();
+        Staging s = Staging.readStaging(journal);
+        s.saveStaging();
+        journal.commit();
+        journal.close();
+        return s;
+    }
+}